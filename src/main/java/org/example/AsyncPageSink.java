@@ -0,0 +1,135 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Hands pages over to a writer thread, so output I/O overlaps with extraction.
+// The queue is bounded: a slow disk slows extraction down instead of buffering the document in memory.
+public class AsyncPageSink implements PageSink {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+    // How often a blocked producer checks that the writer thread is still alive
+    private static final long WRITER_CHECK_MILLIS = 100;
+
+    private final PageSink delegate;
+    private final BlockingQueue<SinkTask> queue;
+    private final Thread writerThread;
+    // IOException or RuntimeException of the delegate
+    private volatile Exception failure;
+    // Set when the writer thread took the last task, a writer that died before it lost pages
+    private volatile boolean drained;
+
+    public AsyncPageSink(PageSink delegate) {
+        this(delegate, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public AsyncPageSink(PageSink delegate, int queueCapacity) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(this::drain, "page-sink-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void beginDocument(String documentId) throws IOException {
+        submit(new SinkTask(() -> delegate.beginDocument(documentId), false));
+    }
+
+    @Override
+    public void writePage(FilePage page) throws IOException {
+        submit(new SinkTask(() -> delegate.writePage(page), false));
+    }
+
+    @Override
+    public void writeChunk(PdfWriter.FileChunk chunk) throws IOException {
+        submit(new SinkTask(() -> delegate.writeChunk(chunk), false));
+    }
+
+    @Override
+    public void endDocument() throws IOException {
+        submit(new SinkTask(delegate::endDocument, false));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            put(new SinkTask(() -> { }, true));
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing the page sink");
+        } finally {
+            delegate.close();
+        }
+        throwIfFailed();
+        if (!drained) {
+            throw new IOException("Page sink writer stopped before all pages were written");
+        }
+    }
+
+    private void submit(SinkTask task) throws IOException {
+        throwIfFailed();
+        try {
+            put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing to the page sink");
+        }
+    }
+
+    // Gives up once the writer thread is gone, nobody would take the task from a full queue
+    private void put(SinkTask task) throws IOException, InterruptedException {
+        while (!queue.offer(task, WRITER_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (!writerThread.isAlive()) {
+                throwIfFailed();
+                throw new IOException("Page sink writer stopped before all pages were written");
+            }
+        }
+    }
+
+    private void throwIfFailed() throws IOException {
+        if (failure != null) {
+            throw new IOException("Page sink writer failed", failure);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                SinkTask task = queue.take();
+                if (task.last) {
+                    drained = true;
+                    return;
+                }
+                if (failure == null) {
+                    try {
+                        task.action.run();
+                    } catch (IOException | RuntimeException e) {
+                        failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface SinkAction {
+        void run() throws IOException;
+    }
+
+    private static class SinkTask {
+        private final SinkAction action;
+        private final boolean last;
+
+        private SinkTask(SinkAction action, boolean last) {
+            this.action = action;
+            this.last = last;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Durable journal of a batch extraction, so a restarted run skips finished documents and retries only
+// the interrupted ones. Every state change is appended as one line and forced to disk before the work
+// continues:  STARTED|DONE|FAILED <tab> path <tab> size <tab> last modified [<tab> message]
+// An input counts as the same document only while its size and modification time are unchanged.
+// The journal is compacted to the last state of every document when it is opened.
+public class BatchManifest implements Closeable {
+
+    public enum Status {
+        STARTED, DONE, FAILED
+    }
+
+    private final Path path;
+    private final Map<String, Record> records;
+    private final FileChannel journal;
+
+    private BatchManifest(Path path, Map<String, Record> records) throws IOException {
+        this.path = path;
+        this.records = records;
+        this.journal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    public static BatchManifest open(Path path) throws IOException {
+        Map<String, Record> records = new LinkedHashMap<>();
+        if (Files.exists(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                Record record = Record.parse(line);
+                // A torn last line of a crashed run is ignored, the document is simply retried
+                if (record != null) {
+                    records.put(record.path, record);
+                }
+            }
+            compact(path, records);
+        }
+        return new BatchManifest(path, records);
+    }
+
+    // Finished documents are skipped; failed ones too, unless retryFailed
+    public synchronized boolean isFinished(File input, boolean retryFailed) {
+        Record record = records.get(getKey(input));
+        if (record == null || !record.isSameInput(input)) return false;
+        return record.status == Status.DONE || (record.status == Status.FAILED && !retryFailed);
+    }
+
+    public synchronized void started(File input) throws IOException {
+        append(new Record(Status.STARTED, getKey(input), input.length(), input.lastModified(), null));
+    }
+
+    // Must be called after the output of the document is durable
+    public synchronized void done(File input) throws IOException {
+        append(new Record(Status.DONE, getKey(input), input.length(), input.lastModified(), null));
+    }
+
+    public synchronized void failed(File input, String message) throws IOException {
+        append(new Record(Status.FAILED, getKey(input), input.length(), input.lastModified(), message));
+    }
+
+    public synchronized int count(Status status) {
+        return (int) records.values().stream().filter(record -> record.status == status).count();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        journal.close();
+    }
+
+    // Writes the file under a temporary name next to the target, forces it to disk and renames it,
+    // so the target is either the previous or the complete new output, never a partial one
+    public static void moveAtomically(Path temporary, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory(target.toAbsolutePath().getParent());
+    }
+
+    private void append(Record record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((record.toLine() + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        journal.force(false);
+        records.put(record.path, record);
+    }
+
+    private static void compact(Path path, Map<String, Record> records) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        StringBuilder content = new StringBuilder();
+        for (Record record : records.values()) {
+            content.append(record.toLine()).append('\n');
+        }
+        Files.write(temporary, content.toString().getBytes(StandardCharsets.UTF_8));
+        moveAtomically(temporary, path);
+    }
+
+    // The rename itself is durable only once the directory is; not every platform can open a directory
+    private static void forceDirectory(Path directory) {
+        if (directory == null) return;
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort
+        }
+    }
+
+    private static String getKey(File input) {
+        return input.getAbsolutePath();
+    }
+
+    private static class Record {
+        private final Status status;
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String message;
+
+        private Record(Status status, String path, long size, long lastModified, String message) {
+            this.status = status;
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.message = message;
+        }
+
+        private boolean isSameInput(File input) {
+            return size == input.length() && lastModified == input.lastModified();
+        }
+
+        private String toLine() {
+            String line = status + "\t" + clean(path) + "\t" + size + "\t" + lastModified;
+            return message == null ? line : line + "\t" + clean(message);
+        }
+
+        private static Record parse(String line) {
+            String[] fields = line.split("\t", 5);
+            if (fields.length < 4) return null;
+            try {
+                return new Record(Status.valueOf(fields[0]), fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                        fields.length == 5 ? fields[4] : null);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        // Tabs and line breaks would break the record
+        private static String clean(String value) {
+            return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Fuzzy matcher for boilerplate phrases ("(No file attached)" and the like). It gives the same answer
+// as Lucene LevenshteinDistance >= threshold against every phrase, but the phrases are compiled once:
+// a bigram index and a length filter drop almost all phrases after a single scan of the line,
+// and only the remaining candidates are verified with a distance computation bounded by the threshold.
+public class BoilerplateMatcher {
+
+    public static final List<String> DEFAULT_PHRASES = List.of(
+            "(No file attached)", "Please upload supporting document"
+    );
+
+    private final float similarityThreshold;
+    private final List<char[]> phrases = new ArrayList<>();
+    // Lucene scores an empty string 1 against an empty one and 0 against any other
+    private boolean hasEmptyPhrase;
+    // Bigram -> phrases containing it, with the number of occurrences in the phrase
+    private final Map<Integer, List<int[]>> bigramIndex = new HashMap<>();
+    // Counters of common bigrams, reused by the calls of one thread
+    private final ThreadLocal<int[]> commonBigramsBuffer;
+
+    public BoilerplateMatcher(Collection<String> phrases, float similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+        for (String phrase : phrases) {
+            if (phrase.isEmpty()) {
+                hasEmptyPhrase = true;
+                continue;
+            }
+            int phraseId = this.phrases.size();
+            char[] chars = phrase.toCharArray();
+            this.phrases.add(chars);
+            for (Map.Entry<Integer, Integer> bigram : countBigrams(chars).entrySet()) {
+                bigramIndex.computeIfAbsent(bigram.getKey(), k -> new ArrayList<>()).add(new int[]{phraseId, bigram.getValue()});
+            }
+        }
+        int phraseCount = this.phrases.size();
+        this.commonBigramsBuffer = ThreadLocal.withInitial(() -> new int[phraseCount]);
+    }
+
+    // One phrase per line, blank lines are skipped
+    public static List<String> readPhrases(Path path) throws IOException {
+        List<String> phrases = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                phrases.add(line.trim());
+            }
+        }
+        return phrases;
+    }
+
+    public boolean matches(String line) {
+        char[] chars = line.trim().toCharArray();
+        if (chars.length == 0) {
+            return (hasEmptyPhrase && 1 >= similarityThreshold) || (!phrases.isEmpty() && 0 >= similarityThreshold);
+        }
+        if (hasEmptyPhrase && 0 >= similarityThreshold) return true;
+        if (phrases.isEmpty()) return false;
+
+        // Common bigrams with every phrase, counted in one pass over the bigrams of the line
+        int[] commonBigrams = commonBigramsBuffer.get();
+        Arrays.fill(commonBigrams, 0);
+        for (Map.Entry<Integer, Integer> bigram : countBigrams(chars).entrySet()) {
+            List<int[]> postings = bigramIndex.get(bigram.getKey());
+            if (postings == null) continue;
+            for (int[] posting : postings) {
+                commonBigrams[posting[0]] += Math.min(bigram.getValue(), posting[1]);
+            }
+        }
+
+        for (int i = 0; i < phrases.size(); i++) {
+            char[] phrase = phrases.get(i);
+            int maxLength = Math.max(phrase.length, chars.length);
+            int maxDistance = maxDistance(maxLength);
+            if (Math.abs(phrase.length - chars.length) > maxDistance) continue;
+            // Every edit destroys at most two bigrams of the longer string
+            if (commonBigrams[i] < maxLength - 1 - 2 * maxDistance) continue;
+            if (boundedDistance(phrase, chars, maxDistance) <= maxDistance) return true;
+        }
+        return false;
+    }
+
+    // The largest edit distance that still passes the threshold, with the same float arithmetic as Lucene
+    private int maxDistance(int maxLength) {
+        int distance = 0;
+        while (distance < maxLength && 1 - ((float) (distance + 1) / maxLength) >= similarityThreshold) {
+            distance++;
+        }
+        return distance;
+    }
+
+    // Levenshtein distance restricted to the diagonal band of the given width,
+    // returns maxDistance + 1 as soon as the distance is known to exceed it
+    private static int boundedDistance(char[] a, char[] b, int maxDistance) {
+        int outside = maxDistance + 1;
+        int[] previous = new int[b.length + 1];
+        int[] current = new int[b.length + 1];
+        for (int j = 0; j <= b.length; j++) {
+            previous[j] = j <= maxDistance ? j : outside;
+        }
+        for (int i = 1; i <= a.length; i++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(b.length, i + maxDistance);
+            current[0] = i <= maxDistance ? i : outside;
+            if (from > 1) {
+                current[from - 1] = outside;
+            }
+            int rowMin = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = a[i - 1] == b[j - 1] ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                current[j] = Math.min(value, outside);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < b.length) {
+                current[to + 1] = outside;
+            }
+            if (rowMin > maxDistance) return outside;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length];
+    }
+
+    private static Map<Integer, Integer> countBigrams(char[] chars) {
+        Map<Integer, Integer> bigrams = new HashMap<>();
+        for (int i = 0; i + 1 < chars.length; i++) {
+            bigrams.merge((chars[i] << 16) | chars[i + 1], 1, Integer::sum);
+        }
+        return bigrams;
+    }
+}
@@ -0,0 +1,64 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import technology.tabula.Cell;
+import technology.tabula.Page;
+import technology.tabula.TextElement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lattice detection through the TableTemplateCache: pages with a known ruling layout get the cached cell grid,
+// filled with their own text the way tabula fills its cells; other pages are detected by the backend and their
+// layout is cached. The result is the same as the backend's, the detection is only skipped.
+public class CachingTableExtractor implements TableExtractor {
+
+    private final TableExtractor backend;
+    private final TableTemplateCache cache;
+
+    public CachingTableExtractor(TableExtractor backend, TableTemplateCache cache) {
+        this.backend = backend;
+        this.cache = cache;
+    }
+
+    @Override
+    public String getName() {
+        return backend.getName();
+    }
+
+    @Override
+    public List<StructuredPage.TableGrid> extract(PDDocument document, Page page) throws IOException {
+        // Without rulings there is no lattice table, and nothing worth caching
+        if (page.getRulings().isEmpty()) return new ArrayList<>();
+        int[] signature = TableTemplateCache.getSignature(page);
+        List<StructuredPage.TableGrid> layout = cache.get(signature);
+        if (layout == null) {
+            List<StructuredPage.TableGrid> tables = backend.extract(document, page);
+            cache.put(signature, tables);
+            return tables;
+        }
+
+        List<StructuredPage.TableGrid> tables = new ArrayList<>(layout.size());
+        for (StructuredPage.TableGrid template : layout) {
+            StructuredPage.TableGrid table = new StructuredPage.TableGrid(template.getX(), template.getY(), template.getWidth(), template.getHeight());
+            for (List<StructuredPage.TableCell> templateRow : template.getRows()) {
+                List<StructuredPage.TableCell> row = new ArrayList<>(templateRow.size());
+                for (StructuredPage.TableCell cell : templateRow) {
+                    row.add(new StructuredPage.TableCell(cell.getX(), cell.getY(), cell.getWidth(), cell.getHeight(), getCellText(page, cell)));
+                }
+                table.getRows().add(row);
+            }
+            tables.add(table);
+        }
+        return tables;
+    }
+
+    // Padding cells of short rows have no size and no text
+    private static String getCellText(Page page, StructuredPage.TableCell cell) {
+        if (cell.getWidth() == 0 && cell.getHeight() == 0) return "";
+        Cell tabulaCell = new Cell(cell.getY(), cell.getX(), cell.getWidth(), cell.getHeight());
+        tabulaCell.setTextElements(TextElement.mergeWords(page.getText(tabulaCell)));
+        return tabulaCell.getText();
+    }
+}
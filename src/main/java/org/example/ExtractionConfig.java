@@ -0,0 +1,72 @@
+package org.example;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+// Immutable extraction settings, shared by all documents extracted with one engine
+@Value
+@Builder(toBuilder = true)
+public class ExtractionConfig {
+
+    public static final float DEFAULT_SIMILARITY_THRESHOLD = 0.8f;
+    public static final float DEFAULT_FREQUENCY_THRESHOLD = 0.7f;
+    public static final int DEFAULT_HEADER_AND_FOOTER_HEIGHT = 75;
+    public static final int DEFAULT_SAMPLED_DETECTION_PAGE_THRESHOLD = 300;
+    public static final float DEFAULT_NEAR_DUPLICATE_THRESHOLD = 0.8f;
+    // PDFBox setSortByPosition, or the XY-cut layout of ReadingOrderLayout
+    public static final String POSITION_READING_ORDER = "position";
+    public static final String XY_CUT_READING_ORDER = "xy-cut";
+    public static final List<String> READING_ORDERS = List.of(POSITION_READING_ORDER, XY_CUT_READING_ORDER);
+
+    // One of TableExtractor.NAMES
+    @Builder.Default
+    String tableBackend = "tabula";
+    // One of READING_ORDERS
+    @Builder.Default
+    String readingOrder = POSITION_READING_ORDER;
+    @Builder.Default
+    boolean convertTableToReadableFormat = true;
+    @Builder.Default
+    boolean tablesWithHeader = false;
+    // Minimal Levenshtein similarity of lines that are treated as the same line
+    @Builder.Default
+    float similarityThreshold = DEFAULT_SIMILARITY_THRESHOLD;
+    // Share of pages a line must appear on to be removed as a header or footer
+    @Builder.Default
+    float frequencyThreshold = DEFAULT_FREQUENCY_THRESHOLD;
+    @Builder.Default
+    int headerAndFooterHeight = DEFAULT_HEADER_AND_FOOTER_HEIGHT;
+    // Documents with more pages than the threshold use sampled header/footer detection
+    @Builder.Default
+    int sampledDetectionPageThreshold = DEFAULT_SAMPLED_DETECTION_PAGE_THRESHOLD;
+    // Workers of the header/footer detection of one document, used when the session has a PdfSource
+    @Builder.Default
+    int detectionParallelism = Runtime.getRuntime().availableProcessors();
+    // Boilerplate body lines that are removed even if they do not repeat on most pages
+    @Builder.Default
+    List<String> boilerplatePhrases = BoilerplateMatcher.DEFAULT_PHRASES;
+    // Pages kept in the cross-document page cache, 0 disables the cache
+    @Builder.Default
+    int pageCacheSize = 0;
+    // Ruling layouts kept in the cross-document table template cache (tabula backend), 0 disables the cache
+    @Builder.Default
+    int tableTemplateCacheSize = 0;
+    // Recent documents kept for near-duplicate lookup, 0 disables the lookup
+    @Builder.Default
+    int nearDuplicateDocuments = 0;
+    // Share of common pages for a document to be treated as a revision of an earlier one
+    @Builder.Default
+    float nearDuplicateThreshold = DEFAULT_NEAR_DUPLICATE_THRESHOLD;
+
+    public static ExtractionConfig defaults() {
+        return builder().build();
+    }
+
+    // Detection workers per document when the given number of documents run in parallel, so that together
+    // they do not start more threads, and open more handles of their documents, than there are cores
+    public static int getDetectionParallelism(int parallelDocuments) {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, parallelDocuments));
+    }
+}
@@ -0,0 +1,59 @@
+package org.example;
+
+import lombok.Getter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.util.List;
+
+// Immutable and thread-safe: built once from the configuration and shared by all threads of a process.
+// Every document is extracted by its own lightweight session (PdfTextExtractor), which holds the state
+// of that document only.
+@Getter
+public final class ExtractionEngine {
+
+    private static final ExtractionEngine DEFAULT = new ExtractionEngine(ExtractionConfig.defaults());
+
+    private final ExtractionConfig config;
+    private final BoilerplateMatcher boilerplateMatcher;
+    // Null if the page cache is disabled
+    private final PageCache pageCache;
+    // Null if the near-duplicate lookup is disabled
+    private final NearDuplicateIndex nearDuplicateIndex;
+    // Null if the table template cache is disabled or the backend does not detect tables from rulings
+    private final TableTemplateCache tableTemplateCache;
+
+    public ExtractionEngine(ExtractionConfig config) {
+        if (!TableExtractor.NAMES.contains(config.getTableBackend())) {
+            throw new IllegalArgumentException("Unknown table backend: " + config.getTableBackend() + ", expected one of " + TableExtractor.NAMES);
+        }
+        if (!ExtractionConfig.READING_ORDERS.contains(config.getReadingOrder())) {
+            throw new IllegalArgumentException("Unknown reading order: " + config.getReadingOrder() + ", expected one of " + ExtractionConfig.READING_ORDERS);
+        }
+        this.config = config.toBuilder().boilerplatePhrases(List.copyOf(config.getBoilerplatePhrases())).build();
+        this.boilerplateMatcher = new BoilerplateMatcher(this.config.getBoilerplatePhrases(), config.getSimilarityThreshold());
+        this.pageCache = config.getPageCacheSize() > 0 ? new PageCache(config.getPageCacheSize()) : null;
+        this.nearDuplicateIndex = config.getNearDuplicateDocuments() > 0
+                ? new NearDuplicateIndex(config.getNearDuplicateDocuments(), config.getNearDuplicateThreshold())
+                : null;
+        this.tableTemplateCache = config.getTableTemplateCacheSize() > 0 && config.getTableBackend().equals("tabula")
+                ? new TableTemplateCache(config.getTableTemplateCacheSize())
+                : null;
+    }
+
+    public static ExtractionEngine getDefault() {
+        return DEFAULT;
+    }
+
+    // Opens nothing and reads nothing: the document is classified and processed on first use
+    public PdfTextExtractor newSession(PDDocument document) {
+        return newSession(document, null);
+    }
+
+    public PdfTextExtractor newSession(PDDocument document, String documentId) {
+        TableExtractor tableExtractor = TableExtractor.forName(config.getTableBackend());
+        if (tableTemplateCache != null) {
+            tableExtractor = new CachingTableExtractor(tableExtractor, tableTemplateCache);
+        }
+        return new PdfTextExtractor(this, document, tableExtractor, documentId);
+    }
+}
@@ -0,0 +1,157 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Flight Recorder events for every extraction stage. They cost next to nothing while no recording is running.
+// A continuous recording keeps the slowest stages of recent documents:
+//
+//   java -XX:StartFlightRecording=name=pdf-extractor,maxage=1h ...  (or PDF_EXTRACTOR_JFR=1 with bin/pdf-extractor)
+//   jcmd <pid> JFR.dump name=pdf-extractor filename=extraction.jfr
+//   jfr print --categories "PDF Extractor" extraction.jfr
+//
+// Per-table and per-cell events are frequent, so they are only recorded above a duration threshold.
+final class ExtractionEvents {
+
+    private static final String CATEGORY = "PDF Extractor";
+
+    private ExtractionEvents() {
+    }
+
+    @Name("org.example.Classification")
+    @Label("Document Classification")
+    @Description("Detection of the SSEL document layout")
+    @Category({CATEGORY, "Document"})
+    @StackTrace(false)
+    static class Classification extends Event {
+        @Label("Document Id")
+        String documentId;
+        @Label("Pages")
+        int pageCount;
+        @Label("SSEL Document")
+        boolean sselDocument;
+    }
+
+    @Name("org.example.FormProcessing")
+    @Label("Form Processing")
+    @Description("Reading AcroForm fields and writing their markers into the pages")
+    @Category({CATEGORY, "Document"})
+    @StackTrace(false)
+    static class FormProcessing extends Event {
+        @Label("Document Id")
+        String documentId;
+        @Label("Form Fields")
+        int fieldCount;
+    }
+
+    @Name("org.example.DuplicateDetection")
+    @Label("Duplicate Detection")
+    @Description("Counting of repetitive header, footer and boilerplate lines")
+    @Category({CATEGORY, "Document"})
+    @StackTrace(false)
+    static class DuplicateDetection extends Event {
+        @Label("Document Id")
+        String documentId;
+        @Label("Pages")
+        int pageCount;
+        @Label("Counted Pages")
+        int countedPageCount;
+        @Label("Sampled")
+        boolean sampled;
+        @Label("Workers")
+        int workerCount;
+        @Label("Lines To Remove")
+        int lineCount;
+    }
+
+    @Name("org.example.NearDuplicateLookup")
+    @Label("Near-Duplicate Lookup")
+    @Description("Search for an earlier revision of the document whose pages and repetitive lines are reused")
+    @Category({CATEGORY, "Document"})
+    @StackTrace(false)
+    static class NearDuplicateLookup extends Event {
+        @Label("Document Id")
+        String documentId;
+        @Label("Revision Document Id")
+        String revisionDocumentId;
+        @Label("Similarity")
+        float similarity;
+    }
+
+    @Name("org.example.PageStrip")
+    @Label("Page Strip")
+    @Description("Text extraction of one page, including its tables")
+    @Category({CATEGORY, "Page"})
+    @StackTrace(false)
+    static class PageStrip extends Event {
+        @Label("Document Id")
+        String documentId;
+        @Label("Page Number")
+        int pageNumber;
+        @Label("Clean")
+        boolean clean;
+        @Label("Page Cache Hit")
+        boolean cacheHit;
+        @Label("Tables")
+        int tableCount;
+        @Label("Questions")
+        int questionCount;
+        @Label("Characters")
+        int characterCount;
+    }
+
+    @Name("org.example.TableDetection")
+    @Label("Table Detection")
+    @Description("Table backend call for one page")
+    @Category({CATEGORY, "Table"})
+    @StackTrace(false)
+    static class TableDetection extends Event {
+        @Label("Document Id")
+        String documentId;
+        @Label("Page Number")
+        int pageNumber;
+        @Label("Backend")
+        String backend;
+        @Label("Tables")
+        int tableCount;
+    }
+
+    @Name("org.example.TableExtraction")
+    @Label("Table Extraction")
+    @Description("Reading the cells of one detected table")
+    @Category({CATEGORY, "Table"})
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static class TableExtraction extends Event {
+        @Label("Document Id")
+        String documentId;
+        @Label("Page Number")
+        int pageNumber;
+        @Label("Rows")
+        int rowCount;
+        @Label("Columns")
+        int columnCount;
+        @Label("Question")
+        boolean question;
+    }
+
+    @Name("org.example.CellRegionExtraction")
+    @Label("Cell Region Extraction")
+    @Description("Text extraction of one table cell region")
+    @Category({CATEGORY, "Table"})
+    @StackTrace(false)
+    @Threshold("5 ms")
+    static class CellRegionExtraction extends Event {
+        @Label("Document Id")
+        String documentId;
+        @Label("Page Number")
+        int pageNumber;
+        @Label("Characters")
+        int characterCount;
+    }
+}
@@ -0,0 +1,281 @@
+package org.example;
+
+import lombok.Getter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Runs a batch on a work-stealing pool, so the largest document no longer decides when the batch ends.
+// Documents are planned from their file sizes, no document is parsed before it runs: a document within its fair
+// share of the batch (total bytes over threads) is extracted whole by one thread. A larger one reads its page
+// count when it starts and, from MIN_SPLIT_PAGES pages on, is split into page-range tasks which idle threads
+// steal; its pages reach the listener in page order. Header/footer detection of a split document runs once on
+// the whole document, so its output is the same as if it were extracted whole. Documents start largest first.
+// Every open document holds an estimate of its heap (a multiple of the file size) from a budget, so the ranges
+// of large documents do not exhaust the heap. With one thread documents run in input order, none is split.
+// Header/footer detection opens handles of its own, outside the budget: the engine should give each document its
+// share of the cores only (ExtractionConfig.getDetectionParallelism).
+public class ExtractionPlanner {
+
+    // Documents with fewer pages are never split
+    private static final int MIN_SPLIT_PAGES = 200;
+    private static final int MIN_RANGE_PAGES = 50;
+    // PDFBox keeps the file and the parsed objects of an open document in memory
+    private static final int MEMORY_PER_FILE_BYTE = 4;
+    private static final long MIN_DOCUMENT_MEMORY = 16L * 1024 * 1024;
+    private static final double DEFAULT_HEAP_BUDGET_SHARE = 0.6;
+    private static final long MB = 1024 * 1024;
+
+    private final ExtractionEngine engine;
+    private final int parallelism;
+    // Heap budget in MB
+    private final Semaphore memory;
+    private final int budgetMb;
+
+    public ExtractionPlanner(ExtractionEngine engine, int parallelism) {
+        this(engine, parallelism, (long) (Runtime.getRuntime().maxMemory() * DEFAULT_HEAP_BUDGET_SHARE));
+    }
+
+    public ExtractionPlanner(ExtractionEngine engine, int parallelism, long heapBudgetBytes) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, got: " + parallelism);
+        }
+        this.engine = engine;
+        this.parallelism = parallelism;
+        this.budgetMb = (int) Math.max(1, Math.min(Integer.MAX_VALUE, heapBudgetBytes / MB));
+        this.memory = new Semaphore(budgetMb);
+    }
+
+    @FunctionalInterface
+    public interface DocumentHandler {
+        // Failures of the document are the handler's to report, an exception stops the batch
+        void handle(PlannedDocument document) throws IOException;
+    }
+
+    // What the handler extracts from a session: the session gets the whole request or one of its page ranges
+    @FunctionalInterface
+    public interface SessionExtraction {
+        void extract(PdfTextExtractor session, ExtractionRequest request, StructuredPageListener listener) throws IOException;
+    }
+
+    @Getter
+    public static class PlannedDocument {
+        private final File file;
+        private final long size;
+        // Larger than its share of the batch, split if it has enough pages
+        private final boolean splitCandidate;
+
+        private PlannedDocument(File file, long size, boolean splitCandidate) {
+            this.file = file;
+            this.size = size;
+            this.splitCandidate = splitCandidate;
+        }
+    }
+
+    // Splittable is false where page ranges can not be merged, e.g. raw text or a requested page range
+    public List<PlannedDocument> plan(List<File> files, boolean splittable) {
+        if (parallelism == 1) {
+            return files.stream().map(file -> new PlannedDocument(file, file.length(), false)).collect(Collectors.toList());
+        }
+        long[] sizes = files.stream().mapToLong(File::length).toArray();
+        long fairShare = Arrays.stream(sizes).sum() / parallelism;
+
+        List<PlannedDocument> plan = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            plan.add(new PlannedDocument(files.get(i), sizes[i], splittable && sizes[i] > fairShare));
+        }
+        // Largest first: the long documents start while the small ones fill the gaps
+        plan.sort(Comparator.comparingLong((PlannedDocument document) -> document.size).reversed());
+        return plan;
+    }
+
+    // Returns when every document is handled
+    public void run(List<PlannedDocument> plan, DocumentHandler handler) throws IOException {
+        if (parallelism == 1) {
+            for (PlannedDocument document : plan) {
+                handler.handle(document);
+            }
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+        try {
+            for (PlannedDocument document : plan) {
+                tasks.add(pool.submit(ForkJoinTask.adapt(() -> {
+                    handler.handle(document);
+                    return null;
+                })));
+            }
+            for (ForkJoinTask<Void> task : tasks) {
+                join(task);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Documents that did not start are dropped, running ones finish before the caller closes its outputs
+            for (ForkJoinTask<Void> task : tasks) {
+                task.cancel(false);
+            }
+            throw e;
+        } finally {
+            pool.shutdown();
+            awaitTermination(pool);
+        }
+    }
+
+    // Pages of the document in page order, from the whole document or from its page ranges in parallel.
+    // Must run in the pool of run() for the ranges to run in parallel.
+    public void extract(PlannedDocument document, ExtractionRequest request, SessionExtraction extraction,
+                        StructuredPageListener listener) throws IOException {
+        File file = document.getFile();
+        List<int[]> ranges;
+        PdfTextExtractor.DuplicateLines duplicates = null;
+        try (Reservation reservation = reserve(file);
+             PDDocument pdDocument = PDDocument.load(file)) {
+            PdfTextExtractor session = newSession(pdDocument, file);
+            int pageCount = pdDocument.getNumberOfPages();
+            if (!document.isSplitCandidate() || pageCount < MIN_SPLIT_PAGES) {
+                extraction.extract(session, request, listener);
+                return;
+            }
+            ranges = getRanges(pageCount);
+            if (request.has(ExtractionRequest.Stage.TEXT) && request.has(ExtractionRequest.Stage.CLEANUP)) {
+                duplicates = session.findDocumentDuplicates();
+            }
+        }
+
+        PdfTextExtractor.DuplicateLines documentDuplicates = duplicates;
+        List<ForkJoinTask<List<ExtractedPage>>> rangeTasks = new ArrayList<>();
+        for (int[] range : ranges) {
+            ExtractionRequest rangeRequest = ExtractionRequest.builder()
+                    .firstPage(range[0])
+                    .lastPage(range[1])
+                    .stages(request.getStages())
+                    .build();
+            rangeTasks.add(ForkJoinTask.adapt(() -> extractRange(file, rangeRequest, documentDuplicates, extraction)).fork());
+        }
+        try {
+            for (ForkJoinTask<List<ExtractedPage>> rangeTask : rangeTasks) {
+                for (ExtractedPage page : join(rangeTask)) {
+                    listener.onPage(page.page, page.structure);
+                }
+            }
+        } finally {
+            for (ForkJoinTask<List<ExtractedPage>> rangeTask : rangeTasks) {
+                rangeTask.cancel(false);
+            }
+        }
+    }
+
+    // One range per thread, but no range shorter than MIN_RANGE_PAGES
+    private List<int[]> getRanges(int pageCount) {
+        int rangeCount = Math.min(parallelism, (pageCount + MIN_RANGE_PAGES - 1) / MIN_RANGE_PAGES);
+        int rangePages = (pageCount + rangeCount - 1) / rangeCount;
+        List<int[]> ranges = new ArrayList<>();
+        for (int firstPage = 1; firstPage <= pageCount; firstPage += rangePages) {
+            ranges.add(new int[]{firstPage, Math.min(pageCount, firstPage + rangePages - 1)});
+        }
+        return ranges;
+    }
+
+    private List<ExtractedPage> extractRange(File file, ExtractionRequest request, PdfTextExtractor.DuplicateLines duplicates,
+                                             SessionExtraction extraction) throws IOException {
+        List<ExtractedPage> pages = new ArrayList<>();
+        try (Reservation reservation = reserve(file);
+             PDDocument pdDocument = PDDocument.load(file)) {
+            PdfTextExtractor session = newSession(pdDocument, file);
+            if (duplicates != null) {
+                session.setDocumentDuplicates(duplicates);
+            }
+            extraction.extract(session, request, (page, structure) -> pages.add(new ExtractedPage(page, structure)));
+        }
+        return pages;
+    }
+
+    private PdfTextExtractor newSession(PDDocument document, File file) {
+        PdfTextExtractor session = engine.newSession(document, file.getName());
+        session.setSource(PdfSource.of(file));
+        return session;
+    }
+
+    // Blocks until the budget has room for the document; a document larger than the whole budget runs alone
+    private Reservation reserve(File file) throws IOException {
+        long estimate = Math.max(MIN_DOCUMENT_MEMORY, file.length() * MEMORY_PER_FILE_BYTE);
+        int permits = (int) Math.min(budgetMb, Math.max(1, estimate / MB));
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                private boolean acquired;
+
+                @Override
+                public boolean block() throws InterruptedException {
+                    if (!acquired) {
+                        memory.acquire(permits);
+                        acquired = true;
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    if (!acquired) {
+                        acquired = memory.tryAcquire(permits);
+                    }
+                    return acquired;
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for heap budget");
+        }
+        return () -> memory.release(permits);
+    }
+
+    // Checked exceptions of the task are rethrown as they are. A task that ran on another thread fails the join
+    // with a copy of its exception, which wraps the original, so the whole cause chain is searched.
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (RuntimeException e) {
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static void awaitTermination(ForkJoinPool pool) throws InterruptedIOException {
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for running documents");
+        }
+    }
+
+    @FunctionalInterface
+    private interface Reservation extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static class ExtractedPage {
+        private final FilePage page;
+        private final StructuredPage structure;
+
+        private ExtractedPage(FilePage page, StructuredPage structure) {
+            this.page = page;
+            this.structure = structure;
+        }
+    }
+}
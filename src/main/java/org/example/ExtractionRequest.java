@@ -0,0 +1,75 @@
+package org.example;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+// Pages and stages of one extraction. Every stage only does the work needed for the requested pages:
+// form fields of other pages are not read, tables are not detected on other pages and header/footer
+// detection counts lines on a window of pages around the range instead of the whole document.
+@Value
+@Builder
+public class ExtractionRequest {
+
+    public enum Stage {
+        // Page text
+        TEXT,
+        // Table grids and questions, tables are also written into the text in the readable format
+        TABLES,
+        // Form values, also written into the text and the table cells
+        FORMS,
+        // Removal of repetitive header, footer and boilerplate lines from the text
+        CLEANUP
+    }
+
+    // 1-based and inclusive, the range is clipped to the pages of the document
+    @Builder.Default
+    int firstPage = 1;
+    @Builder.Default
+    int lastPage = Integer.MAX_VALUE;
+    @Builder.Default
+    Set<Stage> stages = EnumSet.allOf(Stage.class);
+
+    // All pages with all stages, the same result as extract(true)
+    public static ExtractionRequest allPages() {
+        return builder().build();
+    }
+
+    public boolean has(Stage stage) {
+        return stages.contains(stage);
+    }
+
+    // pages: "12" or "10-20", stages: comma separated stage names ("text,tables"); null means all
+    public static ExtractionRequest parse(String pages, String stages) {
+        ExtractionRequestBuilder request = builder();
+        if (pages != null) {
+            int separator = pages.indexOf('-');
+            try {
+                int firstPage = Integer.parseInt(pages.substring(0, separator == -1 ? pages.length() : separator).trim());
+                int lastPage = separator == -1 ? firstPage : Integer.parseInt(pages.substring(separator + 1).trim());
+                if (firstPage < 1 || lastPage < firstPage) {
+                    throw new IllegalArgumentException("Invalid page range: " + pages);
+                }
+                request.firstPage(firstPage).lastPage(lastPage);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid page range: " + pages);
+            }
+        }
+        if (stages != null) {
+            Set<Stage> stageSet = EnumSet.noneOf(Stage.class);
+            for (String stage : stages.split(",")) {
+                if (stage.isBlank()) continue;
+                try {
+                    stageSet.add(Stage.valueOf(stage.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown stage: " + stage.trim() + ", expected one of " + EnumSet.allOf(Stage.class));
+                }
+            }
+            request.stages(stageSet);
+        }
+        return request.build();
+    }
+}
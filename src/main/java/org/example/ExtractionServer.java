@@ -0,0 +1,327 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Long-running local extraction service. Keeps a pool of warmed-up workers, so requests
+// are served with steady-state JIT performance instead of paying JVM start-up each time.
+//
+// POST /extract?clean=true&chunks=false&id=  (body: PDF bytes)  -> {"pages": [...]} or {"chunks": [...]}
+// POST /extract?pages=10-20&stages=text,forms (body: PDF bytes)  -> {"pages": [...], "structures": [...]}
+// GET  /health                                                 -> {"status": "ok", ...}
+public class ExtractionServer {
+
+    private static final int DEFAULT_PORT = 8090;
+    private static final int DEFAULT_QUEUE_CAPACITY = 32;
+    private static final int DEFAULT_WARM_UP_ITERATIONS = 20;
+    private static final long MAX_DOCUMENT_SIZE = 200L * 1024 * 1024;
+    private static final long REQUEST_TIMEOUT_SECONDS = 600;
+
+    private final Gson gson = new Gson();
+    private final int port;
+    private final int workers;
+    private final ThreadPoolExecutor workerPool;
+    private final ExecutorService connectionPool;
+    // Requests admitted to the worker pool, checked before the body is read
+    private final Semaphore admissions;
+    private final AtomicLong requestCounter = new AtomicLong();
+    // Shared by all workers, so template pages repeated across requests are extracted once
+    private final ExtractionEngine engine;
+    private HttpServer server;
+
+    public ExtractionServer(ExtractionEngine engine, int port, int workers, int queueCapacity) {
+        this.engine = engine;
+        this.port = port;
+        this.workers = workers;
+        // Bounded queue: requests above workers + queueCapacity are rejected instead of piling up
+        this.workerPool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreadFactory("extraction-worker"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.admissions = new Semaphore(workers + queueCapacity);
+        // Threads beyond the admitted requests answer the rejected ones without waiting for a running extraction
+        this.connectionPool = Executors.newFixedThreadPool(workers + 2 * queueCapacity, namedThreadFactory("extraction-http"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        int port = options.getInt("port", DEFAULT_PORT);
+        int workers = options.getInt("workers", Runtime.getRuntime().availableProcessors());
+        int queue = options.getInt("queue", DEFAULT_QUEUE_CAPACITY);
+        int warmUp = options.getInt("warm-up", DEFAULT_WARM_UP_ITERATIONS);
+        // Server workers already run requests in parallel, detection of one request stays on its worker
+        ExtractionConfig config = PdfExtractorCli.createConfig(options).toBuilder().detectionParallelism(1).build();
+
+        ExtractionServer extractionServer = new ExtractionServer(new ExtractionEngine(config), port, workers, queue);
+        if (warmUp > 0) {
+            extractionServer.warmUp(warmUp);
+        }
+        extractionServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(extractionServer::stop));
+    }
+
+    public void start() throws IOException {
+        workerPool.prestartAllCoreThreads();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/extract", this::handleExtract);
+        server.createContext("/health", this::handleHealth);
+        server.setExecutor(connectionPool);
+        server.start();
+        System.out.println("Extraction server listening on http://localhost:" + server.getAddress().getPort());
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        connectionPool.shutdown();
+        workerPool.shutdown();
+    }
+
+    // Runs the synthetic document through every worker thread until the hot paths are compiled
+    public void warmUp(int iterations) throws IOException, InterruptedException {
+        byte[] document = SyntheticDocument.getBytes();
+        long start = System.currentTimeMillis();
+        workerPool.prestartAllCoreThreads();
+        // Without the page cache, the table templates and the near-duplicate lookup, so the synthetic pages are really extracted every time
+        ExtractionEngine warmUpEngine = new ExtractionEngine(engine.getConfig().toBuilder().pageCacheSize(0).tableTemplateCacheSize(0).nearDuplicateDocuments(0).build());
+        // One round per iteration, a round never holds more tasks than there are workers
+        for (int round = 0; round < iterations; round++) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                String documentId = "warm-up-" + (round * workers + i);
+                futures.add(workerPool.submit(() -> extract(warmUpEngine, document, true, null, documentId)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        long end = System.currentTimeMillis();
+        System.out.println("Warm-up finished. Executed time: " + (double) (end - start) / 1000 + "s");
+    }
+
+    private void handleExtract(HttpExchange exchange) throws IOException {
+        boolean admitted = false;
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendJson(exchange, 405, error("Use POST with the PDF as the request body"));
+                return;
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            boolean cleanPages = Boolean.parseBoolean(query.getOrDefault("clean", "true"));
+            boolean chunks = Boolean.parseBoolean(query.getOrDefault("chunks", "false"));
+            // Page range and stages are optional, the preview UI asks for a few pages only
+            ExtractionRequest request = null;
+            if (query.containsKey("pages") || query.containsKey("stages")) {
+                try {
+                    request = ExtractionRequest.parse(query.get("pages"), query.get("stages"));
+                } catch (IllegalArgumentException e) {
+                    sendJson(exchange, 400, error(e.getMessage()));
+                    return;
+                }
+            }
+            ExtractionRequest extractionRequest = request;
+
+            // Overload is rejected before the body of up to MAX_DOCUMENT_SIZE is buffered
+            admitted = admissions.tryAcquire();
+            if (!admitted) {
+                rejectOverload(exchange);
+                return;
+            }
+            byte[] document = readBody(exchange.getRequestBody());
+            if (document == null) {
+                sendJson(exchange, 413, error("Document is larger than " + MAX_DOCUMENT_SIZE + " bytes"));
+                return;
+            }
+
+            // Request id in flight recorder events, the client may pass its own
+            String documentId = query.getOrDefault("id", "request-" + requestCounter.incrementAndGet());
+            Future<ExtractionResult> future;
+            try {
+                future = workerPool.submit(() -> extract(engine, document, cleanPages, extractionRequest, documentId));
+            } catch (RejectedExecutionException e) {
+                rejectOverload(exchange);
+                return;
+            }
+
+            ExtractionResult result;
+            try {
+                result = future.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                sendJson(exchange, 504, error("Extraction timed out"));
+                return;
+            } catch (ExecutionException e) {
+                sendJson(exchange, 422, error("Could not extract document: " + e.getCause().getMessage()));
+                return;
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            if (chunks) {
+                response.put("chunks", PdfWriter.splitSselDocumentToChunks(result.getPages()));
+            } else {
+                response.put("pages", result.getPages());
+            }
+            if (result.getStructures() != null) {
+                response.put("structures", result.getStructures());
+            }
+            sendJson(exchange, 200, response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendJson(exchange, 503, error("Server is shutting down"));
+        } finally {
+            if (admitted) {
+                admissions.release();
+            }
+            exchange.close();
+        }
+    }
+
+    private void rejectOverload(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendJson(exchange, 503, error("Extraction queue is full"));
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "ok");
+            response.put("workers", workers);
+            response.put("activeWorkers", workerPool.getActiveCount());
+            response.put("queued", workerPool.getQueue().size());
+            response.put("completed", workerPool.getCompletedTaskCount());
+            PageCache pageCache = engine.getPageCache();
+            if (pageCache != null) {
+                response.put("pageCacheSize", pageCache.size());
+                response.put("pageCacheHits", pageCache.getHits());
+                response.put("pageCacheMisses", pageCache.getMisses());
+            }
+            TableTemplateCache tableTemplates = engine.getTableTemplateCache();
+            if (tableTemplates != null) {
+                response.put("tableTemplates", tableTemplates.size());
+                response.put("tableTemplateHits", tableTemplates.getHits());
+                response.put("tableTemplateMisses", tableTemplates.getMisses());
+            }
+            NearDuplicateIndex nearDuplicates = engine.getNearDuplicateIndex();
+            if (nearDuplicates != null) {
+                response.put("nearDuplicateDocuments", nearDuplicates.size());
+                response.put("nearDuplicateHits", nearDuplicates.getHits());
+                response.put("nearDuplicateMisses", nearDuplicates.getMisses());
+            }
+            sendJson(exchange, 200, response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Request is null for the whole document, it is ignored for raw extraction
+    private ExtractionResult extract(ExtractionEngine engine, byte[] bytes, boolean cleanPages, ExtractionRequest request,
+                                     String documentId) throws IOException {
+        try (PDDocument document = PDDocument.load(bytes)) {
+            PdfTextExtractor session = engine.newSession(document, documentId);
+            if (request == null || !cleanPages) {
+                return new ExtractionResult(session.extract(cleanPages), null);
+            }
+            ExtractionResult result = new ExtractionResult(new ArrayList<>(), new ArrayList<>());
+            session.extract(request, (page, structure) -> {
+                result.getPages().add(page);
+                result.getStructures().add(structure);
+            });
+            return result;
+        }
+    }
+
+    private byte[] readBody(InputStream body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            if (out.size() > MAX_DOCUMENT_SIZE) {
+                return null;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private ErrorResponse error(String message) {
+        return new ErrorResponse(message);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            String key = separator == -1 ? parameter : parameter.substring(0, separator);
+            String value = separator == -1 ? "true" : parameter.substring(separator + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        };
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class ExtractionResult {
+        private List<FilePage> pages;
+        // Only for requests with a page range or stages
+        private List<StructuredPage> structures;
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class ErrorResponse {
+        private String error;
+    }
+}
@@ -4,11 +4,20 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class FilePage {
     private String text;
     private int pageNumber;
-}
+    // Questions starting on this page, in text order
+    private List<QuestionBoundary> questions = new ArrayList<>();
 
+    public FilePage(String text, int pageNumber) {
+        this.text = text;
+        this.pageNumber = pageNumber;
+    }
+}
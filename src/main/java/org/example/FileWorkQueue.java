@@ -0,0 +1,286 @@
+package org.example;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+// Work queue in a directory that all workers share, on one machine or over a shared filesystem. A task is
+// a small properties file that moves between state directories by atomic renames:
+//
+//   pending/ --claim--> leased/ --complete--> done/      (result in results/<task>.jsonl)
+//                          \----fail-------> failed/
+//
+// The rename is the lock: exactly one worker wins a claim, and writes its owner token into the leased file.
+// The worker keeps its lease alive by touching the leased file; a lease that was not renewed within the timeout
+// belongs to a dead worker and is put back to pending (or failed after too many attempts). Lease times come from
+// the workers' clocks, so the nodes must keep their clocks in sync well within the lease timeout.
+public class FileWorkQueue {
+
+    public static final String PENDING = "pending";
+    public static final String LEASED = "leased";
+    public static final String DONE = "done";
+    public static final String FAILED = "failed";
+    private static final String RESULTS = "results";
+    private static final String TEMPORARY = "tmp";
+    // Created when no more tasks are added, idle workers exit
+    private static final String CLOSED_MARKER = "closed";
+    private static final String TASK_SUFFIX = ".task";
+
+    private final Path root;
+
+    public FileWorkQueue(Path root) throws IOException {
+        this.root = root;
+        for (String directory : List.of(PENDING, LEASED, DONE, FAILED, RESULTS, TEMPORARY)) {
+            Files.createDirectories(root.resolve(directory));
+        }
+    }
+
+    // False if a task with this id is already in the queue, in any state. Ids are derived from the document, a task
+    // with the same id of another document is an error.
+    public boolean add(Task task) throws IOException {
+        Task existing = get(task.getId());
+        if (existing != null) {
+            if (!existing.getPath().equals(task.getPath())) {
+                throw new IllegalStateException("Task " + task.getId() + " belongs to " + existing.getPath() + ", not to " + task.getPath());
+            }
+            return false;
+        }
+        write(task, root.resolve(PENDING).resolve(task.getId() + TASK_SUFFIX));
+        return true;
+    }
+
+    // The task with this id in any state, null if there is none
+    public Task get(String id) throws IOException {
+        for (String state : List.of(PENDING, LEASED, DONE, FAILED)) {
+            try {
+                return read(root.resolve(state).resolve(id + TASK_SUFFIX));
+            } catch (NoSuchFileException e) {
+                // Not in this state
+            }
+        }
+        return null;
+    }
+
+    // The first pending task this worker could lease, null if there is none
+    public Task claim() throws IOException {
+        for (Path pending : listTaskFiles(PENDING)) {
+            Path leased = root.resolve(LEASED).resolve(pending.getFileName());
+            try {
+                // The lease time is set before the move: with the old time of the pending file, reclaimExpired
+                // could take the lease back before it is written
+                Files.setLastModifiedTime(pending, FileTime.fromMillis(System.currentTimeMillis()));
+                Files.move(pending, leased, StandardCopyOption.ATOMIC_MOVE);
+                Task task = read(leased);
+                // A worker whose lease expired can tell the new lease of the task from its own
+                task.setOwner(UUID.randomUUID().toString());
+                write(task, leased);
+                return task;
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                // Another worker was faster
+            }
+        }
+        return null;
+    }
+
+    // False if the lease was lost, the task then belongs to another worker
+    public boolean renew(Task task) {
+        try {
+            if (!isOwner(task, getLeasedPath(task))) return false;
+            Files.setLastModifiedTime(getLeasedPath(task), FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public Path getResultPath(Task task) {
+        return root.resolve(RESULTS).resolve(task.getId() + ".jsonl");
+    }
+
+    // Temporary file on the same filesystem as the results, for writing a result before it is published
+    public Path newTemporaryPath() {
+        return root.resolve(TEMPORARY).resolve(UUID.randomUUID() + ".part");
+    }
+
+    // Publishes the result and then marks the task done. A worker whose lease expired may still finish:
+    // extraction is deterministic, the result of either attempt is the same.
+    public void complete(Task task, Path partialResult) throws IOException {
+        BatchManifest.moveAtomically(partialResult, getResultPath(task));
+        try {
+            Files.move(getLeasedPath(task), root.resolve(DONE).resolve(task.getId() + TASK_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            // Reclaimed meanwhile, the new attempt completes it
+        }
+    }
+
+    // Does nothing if the lease was lost, the task then belongs to another worker
+    public void fail(Task task, String error) throws IOException {
+        // Same rename as in reclaimExpired, so the lease can not change hands between the check and the move
+        Path failing = root.resolve(TEMPORARY).resolve(task.getId() + TASK_SUFFIX + "." + task.getOwner() + ".failing");
+        try {
+            Files.move(getLeasedPath(task), failing, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return; // Reclaimed or completed meanwhile
+        }
+        if (!isOwner(task, failing)) {
+            Files.move(failing, getLeasedPath(task), StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+        task.setError(error);
+        write(task, root.resolve(FAILED).resolve(task.getId() + TASK_SUFFIX));
+        Files.delete(failing);
+    }
+
+    // Puts the tasks of dead workers back, returns the number of expired leases
+    public int reclaimExpired(long leaseTimeoutMillis, int maxAttempts) throws IOException {
+        int expired = 0;
+        long now = System.currentTimeMillis();
+        for (Path leased : listTaskFiles(LEASED)) {
+            try {
+                if (now - Files.getLastModifiedTime(leased).toMillis() < leaseTimeoutMillis) continue;
+                // The rename makes sure a late renewal or completion does not race with the rewrite
+                Path reclaimed = root.resolve(TEMPORARY).resolve(leased.getFileName() + ".reclaimed");
+                Files.move(leased, reclaimed, StandardCopyOption.ATOMIC_MOVE);
+                Task task = read(reclaimed);
+                task.setOwner(null);
+                task.setAttempt(task.getAttempt() + 1);
+                if (task.getAttempt() >= maxAttempts) {
+                    task.setError("Lease expired " + task.getAttempt() + " times");
+                    write(task, root.resolve(FAILED).resolve(leased.getFileName()));
+                } else {
+                    write(task, root.resolve(PENDING).resolve(leased.getFileName()));
+                }
+                Files.delete(reclaimed);
+                expired++;
+            } catch (NoSuchFileException e) {
+                // Completed or failed meanwhile
+            }
+        }
+        return expired;
+    }
+
+    public int count(String state) throws IOException {
+        return listTaskFiles(state).size();
+    }
+
+    public List<Task> list(String state) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for (Path path : listTaskFiles(state)) {
+            try {
+                tasks.add(read(path));
+            } catch (NoSuchFileException e) {
+                // Moved meanwhile
+            }
+        }
+        return tasks;
+    }
+
+    public void close() throws IOException {
+        Files.write(root.resolve(CLOSED_MARKER), new byte[0]);
+    }
+
+    // For a coordinator that continues the queue: workers wait for tasks again instead of exiting
+    public void reopen() throws IOException {
+        Files.deleteIfExists(root.resolve(CLOSED_MARKER));
+    }
+
+    public boolean isClosed() {
+        return Files.exists(root.resolve(CLOSED_MARKER));
+    }
+
+    private static boolean isOwner(Task task, Path leased) throws IOException {
+        try {
+            return task.getOwner() != null && task.getOwner().equals(read(leased).getOwner());
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private Path getLeasedPath(Task task) {
+        return root.resolve(LEASED).resolve(task.getId() + TASK_SUFFIX);
+    }
+
+    // Sorted by task id, so tasks are handed out in the order they were added
+    private List<Path> listTaskFiles(String state) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root.resolve(state), "*" + TASK_SUFFIX)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    private void write(Task task, Path target) throws IOException {
+        Properties properties = task.toProperties();
+        StringWriter content = new StringWriter();
+        properties.store(content, null);
+        Path temporary = newTemporaryPath();
+        Files.write(temporary, content.toString().getBytes(StandardCharsets.UTF_8));
+        BatchManifest.moveAtomically(temporary, target);
+    }
+
+    private static Task read(Path path) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new StringReader(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)));
+        return Task.fromProperties(properties);
+    }
+
+    // Pages firstPage..lastPage (1-based, inclusive) of one input document
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Task {
+        private String id;
+        private String path;
+        private String documentId;
+        private int firstPage;
+        private int lastPage;
+        private int attempt;
+        private String error;
+        // Token of the worker that holds the lease, null while the task is not leased
+        private String owner;
+
+        private Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty("id", id);
+            properties.setProperty("path", path);
+            properties.setProperty("documentId", documentId);
+            properties.setProperty("firstPage", String.valueOf(firstPage));
+            properties.setProperty("lastPage", String.valueOf(lastPage));
+            properties.setProperty("attempt", String.valueOf(attempt));
+            if (error != null) {
+                properties.setProperty("error", error);
+            }
+            if (owner != null) {
+                properties.setProperty("owner", owner);
+            }
+            return properties;
+        }
+
+        private static Task fromProperties(Properties properties) {
+            return new Task(properties.getProperty("id"), properties.getProperty("path"), properties.getProperty("documentId"),
+                    Integer.parseInt(properties.getProperty("firstPage")), Integer.parseInt(properties.getProperty("lastPage")),
+                    Integer.parseInt(properties.getProperty("attempt", "0")), properties.getProperty("error"),
+                    properties.getProperty("owner"));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// One JSON object per line: {"documentId", "type": "page"|"chunk", "pageNumber", "chunkIndex", "questionNumber", "text",
+// "questions": [{"offset", "number"}]}; chunks have chunkIndex and questionNumber, pages the questions starting on them
+public class JsonlPageSink implements PageSink {
+
+    private final Writer writer;
+    private final JsonWriter jsonWriter;
+    private String documentId;
+    private int chunkIndex;
+
+    public JsonlPageSink(Writer writer) {
+        this.writer = writer;
+        this.jsonWriter = new JsonWriter(writer);
+        // Lenient mode allows several top-level values in one stream
+        this.jsonWriter.setLenient(true);
+    }
+
+    @Override
+    public void beginDocument(String documentId) {
+        this.documentId = documentId;
+        this.chunkIndex = 0;
+    }
+
+    @Override
+    public void writePage(FilePage page) throws IOException {
+        jsonWriter.beginObject();
+        writeDocumentId();
+        jsonWriter.name("type").value("page");
+        jsonWriter.name("pageNumber").value(page.getPageNumber());
+        jsonWriter.name("text").value(page.getText());
+        if (!page.getQuestions().isEmpty()) {
+            jsonWriter.name("questions").beginArray();
+            for (QuestionBoundary question : page.getQuestions()) {
+                jsonWriter.beginObject();
+                jsonWriter.name("offset").value(question.getOffset());
+                jsonWriter.name("number").value(question.getNumber());
+                jsonWriter.endObject();
+            }
+            jsonWriter.endArray();
+        }
+        jsonWriter.endObject();
+        writer.write('\n');
+    }
+
+    @Override
+    public void writeChunk(PdfWriter.FileChunk chunk) throws IOException {
+        jsonWriter.beginObject();
+        writeDocumentId();
+        jsonWriter.name("type").value("chunk");
+        jsonWriter.name("chunkIndex").value(chunkIndex++);
+        jsonWriter.name("pageNumber").value(chunk.getPageNumber());
+        if (chunk.getQuestionNumber() != null) {
+            jsonWriter.name("questionNumber").value(chunk.getQuestionNumber());
+        }
+        jsonWriter.name("text").value(chunk.getText());
+        jsonWriter.endObject();
+        writer.write('\n');
+    }
+
+    private void writeDocumentId() throws IOException {
+        if (documentId != null) {
+            jsonWriter.name("documentId").value(documentId);
+        }
+    }
+
+    @Override
+    public void endDocument() throws IOException {
+        writer.flush();
+    }
+
+    // The JsonWriter holds nothing after a record, and would fail the close of a sink without records
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
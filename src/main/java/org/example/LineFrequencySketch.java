@@ -0,0 +1,155 @@
+package org.example;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Memory-bounded line counter: a count-min sketch for frequency estimates
+// and a space-saving table that keeps only the heaviest lines with their regions
+class LineFrequencySketch {
+
+    private static final int DEFAULT_WIDTH = 2048;
+    private static final int DEFAULT_DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646C};
+
+    private final int width;
+    private final int depth;
+    private final int capacity;
+    private final int[][] counts;
+    private final Map<String, Candidate> candidates = new LinkedHashMap<>();
+
+    public LineFrequencySketch(int capacity) {
+        this(capacity, DEFAULT_WIDTH, DEFAULT_DEPTH);
+    }
+
+    public LineFrequencySketch(int capacity, int width, int depth) {
+        if (depth > SEEDS.length) {
+            throw new IllegalArgumentException("Sketch depth can not be greater than " + SEEDS.length);
+        }
+        this.capacity = capacity;
+        this.width = width;
+        this.depth = depth;
+        this.counts = new int[depth][width];
+    }
+
+    public void add(String line, String regionStr) {
+        int hash = line.hashCode();
+        for (int i = 0; i < depth; i++) {
+            counts[i][bucket(hash, i)]++;
+        }
+
+        Candidate candidate = candidates.get(line);
+        if (candidate == null) {
+            if (candidates.size() < capacity) {
+                candidate = new Candidate(line, 0);
+            } else {
+                // Space-saving: the new line takes over the slot of the lightest candidate
+                Candidate lightest = findLightestCandidate();
+                candidates.remove(lightest.line);
+                candidate = new Candidate(line, lightest.count);
+            }
+            candidates.put(line, candidate);
+        }
+        candidate.count++;
+        candidate.regions.add(regionStr);
+    }
+
+    // Both sketches must have the same dimensions. Candidate counts are merged as in mergeable space-saving: a line
+    // missing from a full table may have been evicted there, so it gets that table's lightest count, which bounds
+    // its count there. Only the heaviest candidates are kept, so the merged sketch stays within the same memory bound.
+    public LineFrequencySketch merge(LineFrequencySketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Can not merge sketches of different dimensions");
+        }
+        for (int i = 0; i < depth; i++) {
+            for (int j = 0; j < width; j++) {
+                counts[i][j] += other.counts[i][j];
+            }
+        }
+        int missingCount = getMissingCount();
+        int otherMissingCount = other.getMissingCount();
+        for (Candidate candidate : candidates.values()) {
+            if (!other.candidates.containsKey(candidate.line)) {
+                candidate.count += otherMissingCount;
+            }
+        }
+        for (Candidate otherCandidate : other.candidates.values()) {
+            Candidate candidate = candidates.computeIfAbsent(otherCandidate.line, line -> new Candidate(line, missingCount));
+            candidate.count += otherCandidate.count;
+            candidate.regions.addAll(otherCandidate.regions);
+        }
+        if (candidates.size() > capacity) {
+            List<Candidate> heaviest = new ArrayList<>(candidates.values());
+            heaviest.sort((a, b) -> Integer.compare(b.count, a.count));
+            candidates.clear();
+            for (Candidate candidate : heaviest.subList(0, capacity)) {
+                candidates.put(candidate.line, candidate);
+            }
+        }
+        return this;
+    }
+
+    public int estimateCount(String line) {
+        int hash = line.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            estimate = Math.min(estimate, counts[i][bucket(hash, i)]);
+        }
+        Candidate candidate = candidates.get(line);
+        return candidate == null ? estimate : Math.min(estimate, candidate.count);
+    }
+
+    // Copies with the estimated counts, the space-saving counts of the table stay as they are
+    public Collection<Candidate> getCandidates() {
+        List<Candidate> result = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates.values()) {
+            Candidate estimated = new Candidate(candidate.line, estimateCount(candidate.line));
+            estimated.regions.addAll(candidate.regions);
+            result.add(estimated);
+        }
+        return result;
+    }
+
+    // Upper bound of the count of a line that is not in the table: 0 unless lines were evicted
+    private int getMissingCount() {
+        return candidates.isEmpty() || candidates.size() < capacity ? 0 : findLightestCandidate().count;
+    }
+
+    private Candidate findLightestCandidate() {
+        Candidate lightest = null;
+        for (Candidate candidate : candidates.values()) {
+            if (lightest == null || candidate.count < lightest.count) {
+                lightest = candidate;
+            }
+        }
+        return lightest;
+    }
+
+    private int bucket(int hash, int row) {
+        int h = hash ^ SEEDS[row];
+        h ^= h >>> 16;
+        h *= 0x7FEB352D;
+        h ^= h >>> 15;
+        h *= 0x846CA68B;
+        h ^= h >>> 16;
+        return (h & Integer.MAX_VALUE) % width;
+    }
+
+    @Getter
+    public static class Candidate {
+        private final String line;
+        private final Set<String> regions = new HashSet<>();
+        private int count;
+
+        private Candidate(String line, int count) {
+            this.line = line;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripperByArea;
+import technology.tabula.Page;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+// Hand-rolled detection from PdfTableExtractorWithLines: all horizontal and vertical lines of the page
+// form one grid. Line operands are read without the transformation matrix, so only simple layouts work.
+public class LineTableExtractor implements TableExtractor {
+
+    // Lines closer than this are treated as the same grid line
+    private static final float MIN_CELL_SIZE = 2f;
+
+    @Override
+    public String getName() {
+        return "lines";
+    }
+
+    @Override
+    public List<StructuredPage.TableGrid> extract(PDDocument document, Page page) throws IOException {
+        PDPage pdPage = document.getPage(page.getPageNumber() - 1);
+        PdfTableExtractorWithLines lineExtractor = new PdfTableExtractorWithLines();
+        lineExtractor.extractLinesFromPage(pdPage, page.getPageNumber());
+
+        float pageHeight = pdPage.getMediaBox().getHeight();
+        List<Float> rows = mergeCoordinates(lineExtractor.getHorizontalLines(), line -> pageHeight - (float) line.getY1());
+        List<Float> columns = mergeCoordinates(lineExtractor.getVerticalLines(), line -> (float) line.getX1());
+        List<StructuredPage.TableGrid> grids = new ArrayList<>();
+        if (rows.size() < 2 || columns.size() < 2) return grids;
+
+        StructuredPage.TableGrid grid = new StructuredPage.TableGrid(columns.get(0), rows.get(0),
+                columns.get(columns.size() - 1) - columns.get(0), rows.get(rows.size() - 1) - rows.get(0));
+
+        // Text of all cells in one pass over the page
+        PDFTextStripperByArea stripperByArea = new PDFTextStripperByArea();
+        for (int i = 0; i < rows.size() - 1; i++) {
+            for (int j = 0; j < columns.size() - 1; j++) {
+                stripperByArea.addRegion(i + ":" + j, new Rectangle2D.Float(columns.get(j), rows.get(i),
+                        columns.get(j + 1) - columns.get(j), rows.get(i + 1) - rows.get(i)));
+            }
+        }
+        stripperByArea.extractRegions(pdPage);
+
+        for (int i = 0; i < rows.size() - 1; i++) {
+            List<StructuredPage.TableCell> cells = new ArrayList<>();
+            for (int j = 0; j < columns.size() - 1; j++) {
+                cells.add(new StructuredPage.TableCell(columns.get(j), rows.get(i), columns.get(j + 1) - columns.get(j),
+                        rows.get(i + 1) - rows.get(i), stripperByArea.getTextForRegion(i + ":" + j).trim()));
+            }
+            grid.getRows().add(cells);
+        }
+        grids.add(grid);
+        return grids;
+    }
+
+    private List<Float> mergeCoordinates(List<Line2D> lines, LineCoordinate coordinate) {
+        TreeSet<Float> sorted = new TreeSet<>();
+        for (Line2D line : lines) {
+            sorted.add(coordinate.get(line));
+        }
+        List<Float> merged = new ArrayList<>();
+        for (Float value : sorted) {
+            if (merged.isEmpty() || value - merged.get(merged.size() - 1) > MIN_CELL_SIZE) {
+                merged.add(value);
+            }
+        }
+        return merged;
+    }
+
+    @FunctionalInterface
+    private interface LineCoordinate {
+        float get(Line2D line);
+    }
+}
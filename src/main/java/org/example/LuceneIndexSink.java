@@ -0,0 +1,244 @@
+package org.example;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Indexes pages or chunks into a local Lucene directory as they are produced, so the output does not have to be
+// read back by a separate indexing job. One Lucene document per page or chunk with the fields
+// documentId, type ("page"|"chunk"), pageNumber, chunkIndex, questionNumber and text.
+// The pages and chunks of a document are kept until it ends and then added in one block, which replaces its
+// earlier ones atomically: a commit never exposes a half-indexed document, and a document that is not ended
+// (it failed) is never added. Commits are batched and happen between blocks, also while documents run in parallel.
+// A document sink tells when its document is committed, so a batch journal records it as done only then.
+public class LuceneIndexSink implements PageSink {
+
+    public static final String DOCUMENT_ID_FIELD = "documentId";
+    public static final String TYPE_FIELD = "type";
+    public static final String PAGE_NUMBER_FIELD = "pageNumber";
+    public static final String CHUNK_INDEX_FIELD = "chunkIndex";
+    public static final String QUESTION_NUMBER_FIELD = "questionNumber";
+    public static final String TEXT_FIELD = "text";
+
+    private static final int DEFAULT_COMMIT_BATCH_SIZE = 10_000;
+    private static final double RAM_BUFFER_SIZE_MB = 64;
+
+    private final Directory directory;
+    private final IndexWriter indexWriter;
+    private final int commitBatchSize;
+    // Used when the sink itself is written to, one document at a time
+    private final DocumentSink defaultSink = new DocumentSink();
+    private int uncommitted;
+    private int commits;
+    private final List<CommitListener> waitingForCommit = new ArrayList<>();
+
+    public LuceneIndexSink(Path indexDir) throws IOException {
+        this(indexDir, DEFAULT_COMMIT_BATCH_SIZE);
+    }
+
+    public LuceneIndexSink(Path indexDir, int commitBatchSize) throws IOException {
+        this.directory = FSDirectory.open(indexDir);
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        config.setRAMBufferSizeMB(RAM_BUFFER_SIZE_MB);
+        try {
+            this.indexWriter = new IndexWriter(directory, config);
+        } catch (IOException | RuntimeException e) {
+            directory.close();
+            throw e;
+        }
+        this.commitBatchSize = commitBatchSize;
+    }
+
+    @FunctionalInterface
+    public interface CommitListener {
+        void committed() throws IOException;
+    }
+
+    // Sink for one document at a time that shares the index writer, also for documents extracted in parallel.
+    // Closing it drops a document that was not ended; it does not close the index.
+    public DocumentSink newDocumentSink() {
+        return new DocumentSink();
+    }
+
+    // A document that is extracted again replaces its earlier pages and chunks
+    @Override
+    public void beginDocument(String documentId) throws IOException {
+        defaultSink.beginDocument(documentId);
+    }
+
+    @Override
+    public void writePage(FilePage page) throws IOException {
+        defaultSink.writePage(page);
+    }
+
+    @Override
+    public void writeChunk(PdfWriter.FileChunk chunk) throws IOException {
+        defaultSink.writeChunk(chunk);
+    }
+
+    @Override
+    public void endDocument() throws IOException {
+        defaultSink.endDocument();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            defaultSink.close();
+            commit();
+            indexWriter.close();
+        } finally {
+            directory.close();
+        }
+    }
+
+    // Adds the entries of one document as a block, replacing the earlier entries of its documentId.
+    // Returns the number of commits before the block was counted: every later commit contains it.
+    private int addBlock(String documentId, List<Document> entries) throws IOException {
+        if (documentId != null) {
+            indexWriter.updateDocuments(new Term(DOCUMENT_ID_FIELD, documentId), entries);
+        } else {
+            indexWriter.addDocuments(entries);
+        }
+        return blockAdded(entries.size());
+    }
+
+    private synchronized int blockAdded(int entryCount) throws IOException {
+        int addedAt = commits;
+        uncommitted += entryCount;
+        if (uncommitted >= commitBatchSize) {
+            commit();
+        }
+        return addedAt;
+    }
+
+    private synchronized void whenCommitted(int addedAt, CommitListener listener) throws IOException {
+        if (commits > addedAt) {
+            listener.committed();
+        } else {
+            waitingForCommit.add(listener);
+        }
+    }
+
+    // Every listener is called, also after one of them failed
+    private synchronized void commit() throws IOException {
+        indexWriter.commit();
+        uncommitted = 0;
+        commits++;
+        List<CommitListener> listeners = new ArrayList<>(waitingForCommit);
+        waitingForCommit.clear();
+        IOException failure = null;
+        for (CommitListener listener : listeners) {
+            try {
+                listener.committed();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static Document newDocument(String documentId, String type, int pageNumber, String text) {
+        Document document = new Document();
+        if (documentId != null) {
+            document.add(new StringField(DOCUMENT_ID_FIELD, documentId, Field.Store.YES));
+        }
+        document.add(new StringField(TYPE_FIELD, type, Field.Store.YES));
+        addInt(document, PAGE_NUMBER_FIELD, pageNumber);
+        document.add(new TextField(TEXT_FIELD, text, Field.Store.YES));
+        return document;
+    }
+
+    // Range queries on the point, the value is stored for the results
+    private static void addInt(Document document, String name, int value) {
+        document.add(new IntPoint(name, value));
+        document.add(new StoredField(name, value));
+    }
+
+    public class DocumentSink implements PageSink {
+        private String documentId;
+        private int chunkIndex;
+        // Entries of the open document, null while no document is open
+        private List<Document> entries;
+        // Commits before the last ended document was added, -1 if none was ended
+        private int addedAt = -1;
+
+        private DocumentSink() {
+        }
+
+        // The previous document of this sink, if it was never ended, is dropped
+        @Override
+        public void beginDocument(String documentId) {
+            this.documentId = documentId;
+            this.chunkIndex = 0;
+            this.entries = new ArrayList<>();
+        }
+
+        @Override
+        public void writePage(FilePage page) {
+            getEntries().add(newDocument(documentId, "page", page.getPageNumber(), page.getText()));
+        }
+
+        @Override
+        public void writeChunk(PdfWriter.FileChunk chunk) {
+            Document document = newDocument(documentId, "chunk", chunk.getPageNumber(), chunk.getText());
+            addInt(document, CHUNK_INDEX_FIELD, chunkIndex++);
+            if (chunk.getQuestionNumber() != null) {
+                document.add(new StringField(QUESTION_NUMBER_FIELD, chunk.getQuestionNumber(), Field.Store.YES));
+            }
+            getEntries().add(document);
+        }
+
+        @Override
+        public void endDocument() throws IOException {
+            if (entries == null) return;
+            List<Document> block = entries;
+            entries = null;
+            addedAt = addBlock(documentId, block);
+        }
+
+        // Calls the listener once the last ended document is committed: now if it already is, otherwise on the
+        // commit that contains it. A document that is never committed (the index is not closed) never calls it.
+        public void whenCommitted(CommitListener listener) throws IOException {
+            if (addedAt < 0) {
+                throw new IllegalStateException("No document was ended");
+            }
+            LuceneIndexSink.this.whenCommitted(addedAt, listener);
+        }
+
+        // A document that failed before endDocument is dropped
+        @Override
+        public void close() {
+            entries = null;
+        }
+
+        // Pages written without beginDocument form a document without a documentId
+        private List<Document> getEntries() {
+            if (entries == null) {
+                beginDocument(null);
+            }
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.example;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Recently extracted documents, looked up by similarity of their page sets. RFP revisions differ in a handful
+// of pages, so the exact page cache misses the document-level work: a near-duplicate reuses the repetitive lines
+// of the earlier revision instead of running header/footer detection, and the pages it shares with the revision
+// are not extracted again. Documents are compared by the Jaccard similarity of their page keys (content stream,
+// resources and widgets of every page), estimated with MinHash and found through LSH bands without scanning
+// the whole index. Thread-safe, the least recently used documents are evicted.
+public class NearDuplicateIndex {
+
+    private static final int SIGNATURE_SIZE = 128;
+    // 32 bands of 4 rows: documents with a similarity of 0.8 share a band almost surely, of 0.3 rarely
+    private static final int BAND_ROWS = 4;
+    private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+    static {
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final float similarityThreshold;
+    private final Map<String, IndexedDocument> documents;
+    private final Map<Long, Set<IndexedDocument>> buckets = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public NearDuplicateIndex(int maxDocuments, float similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+        this.documents = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IndexedDocument> eldest) {
+                if (size() <= maxDocuments) return false;
+                removeFromBuckets(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    // The most similar indexed document at or above the threshold, null if there is none
+    Match findClosest(String[] pageKeys) {
+        Set<String> keys = toKeySet(pageKeys);
+        if (keys.isEmpty()) return null;
+        long[] signature = computeSignature(keys);
+
+        Match closest = null;
+        synchronized (documents) {
+            Set<IndexedDocument> candidates = new HashSet<>();
+            for (int band = 0; band < SIGNATURE_SIZE / BAND_ROWS; band++) {
+                Set<IndexedDocument> bucket = buckets.get(bandHash(signature, band));
+                if (bucket != null) {
+                    candidates.addAll(bucket);
+                }
+            }
+            // Candidates are verified with the exact similarity of the key sets
+            for (IndexedDocument candidate : candidates) {
+                float similarity = jaccard(keys, candidate.pages.keySet());
+                if (similarity >= similarityThreshold && (closest == null || similarity > closest.similarity)) {
+                    closest = new Match(candidate.documentId, similarity, candidate.duplicates, candidate.pages);
+                }
+            }
+            if (closest != null) {
+                // Marks the match as recently used
+                documents.get(closest.documentId);
+            }
+        }
+        (closest == null ? misses : hits).incrementAndGet();
+        return closest;
+    }
+
+    // Pages maps the page keys of the document to the extracted pages
+    void add(String documentId, PdfTextExtractor.DuplicateLines duplicates, Map<String, PageCache.Entry> pages) {
+        if (documentId == null || pages.isEmpty()) return;
+        IndexedDocument document = new IndexedDocument(documentId, computeSignature(pages.keySet()), duplicates, Map.copyOf(pages));
+        synchronized (documents) {
+            IndexedDocument previous = documents.put(documentId, document);
+            if (previous != null) {
+                removeFromBuckets(previous);
+            }
+            for (int band = 0; band < SIGNATURE_SIZE / BAND_ROWS; band++) {
+                buckets.computeIfAbsent(bandHash(document.signature, band), k -> new HashSet<>()).add(document);
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (documents) {
+            return documents.size();
+        }
+    }
+
+    private void removeFromBuckets(IndexedDocument document) {
+        for (int band = 0; band < SIGNATURE_SIZE / BAND_ROWS; band++) {
+            long hash = bandHash(document.signature, band);
+            Set<IndexedDocument> bucket = buckets.get(hash);
+            if (bucket != null && bucket.remove(document) && bucket.isEmpty()) {
+                buckets.remove(hash);
+            }
+        }
+    }
+
+    private static Set<String> toKeySet(String[] pageKeys) {
+        Set<String> keys = new HashSet<>();
+        for (String key : pageKeys) {
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static long[] computeSignature(Set<String> keys) {
+        long[] signature = new long[SIGNATURE_SIZE];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String key : keys) {
+            // Keys are SHA-256 digests, their first 8 bytes are already uniformly distributed
+            long feature = ByteBuffer.wrap(Base64.getUrlDecoder().decode(key)).getLong();
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                signature[i] = Math.min(signature[i], mix(feature ^ SEEDS[i]));
+            }
+        }
+        return signature;
+    }
+
+    private static long bandHash(long[] signature, int band) {
+        long hash = band;
+        for (int i = band * BAND_ROWS; i < (band + 1) * BAND_ROWS; i++) {
+            hash = mix(hash * 31 + signature[i]);
+        }
+        return hash;
+    }
+
+    private static float jaccard(Set<String> a, Set<String> b) {
+        int common = 0;
+        for (String key : a) {
+            if (b.contains(key)) {
+                common++;
+            }
+        }
+        return (float) common / (a.size() + b.size() - common);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class Match {
+        private final String documentId;
+        private final float similarity;
+        private final PdfTextExtractor.DuplicateLines duplicates;
+        private final Map<String, PageCache.Entry> pages;
+    }
+
+    private static class IndexedDocument {
+        private final String documentId;
+        private final long[] signature;
+        private final PdfTextExtractor.DuplicateLines duplicates;
+        private final Map<String, PageCache.Entry> pages;
+
+        private IndexedDocument(String documentId, long[] signature, PdfTextExtractor.DuplicateLines duplicates,
+                                Map<String, PageCache.Entry> pages) {
+            this.documentId = documentId;
+            this.signature = signature;
+            this.duplicates = duplicates;
+            this.pages = pages;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class OutputSinks {
+
+    public static final List<String> FORMATS = List.of("md", "txt", "jsonl");
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private OutputSinks() {
+    }
+
+    public static PageSink create(String format, Path path) throws IOException {
+        switch (format) {
+            case "md":
+                return new TextPageSink(newBufferedWriter(path), true);
+            case "txt":
+                return new TextPageSink(newBufferedWriter(path), false);
+            case "jsonl":
+                return new JsonlPageSink(newBufferedWriter(path));
+            default:
+                throw new IllegalArgumentException("Unknown output format: " + format + ", expected one of " + FORMATS);
+        }
+    }
+
+    public static void checkFormat(String format) {
+        if (!FORMATS.contains(format)) {
+            throw new IllegalArgumentException("Unknown output format: " + format + ", expected one of " + FORMATS);
+        }
+    }
+
+    // Writes to the output of one file and to a sink shared by the whole batch (the search index).
+    // Closing closes the output only, the shared sink is closed by its owner after the batch.
+    public static PageSink tee(PageSink output, PageSink shared) {
+        return new PageSink() {
+            @Override
+            public void beginDocument(String documentId) throws IOException {
+                output.beginDocument(documentId);
+                shared.beginDocument(documentId);
+            }
+
+            @Override
+            public void writePage(FilePage page) throws IOException {
+                output.writePage(page);
+                shared.writePage(page);
+            }
+
+            @Override
+            public void writeChunk(PdfWriter.FileChunk chunk) throws IOException {
+                output.writeChunk(chunk);
+                shared.writeChunk(chunk);
+            }
+
+            @Override
+            public void endDocument() throws IOException {
+                output.endDocument();
+                shared.endDocument();
+            }
+
+            @Override
+            public void close() throws IOException {
+                output.close();
+            }
+        };
+    }
+
+    // UTF-8 writer over a file channel with a large buffer, the channel is closed with the writer
+    public static Writer newBufferedWriter(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+    }
+}
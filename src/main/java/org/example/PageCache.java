@@ -0,0 +1,224 @@
+package org.example;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cross-document cache of extracted pages. RFPs of the same customer share whole template pages, such pages
+// are stripped and table-extracted once per batch. The key is a hash of the page content stream, its resources
+// and its widgets with their values; the value is the page tape, which is rendered against the repetitive
+// lines of every document separately. Thread-safe, the least recently used pages are evicted.
+public class PageCache {
+
+    private static final Set<String> SKIPPED_KEYS = Set.of(
+            COSName.PARENT.getName(), COSName.P.getName(), COSName.KIDS.getName(), COSName.AP.getName()
+    );
+
+    private final Map<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PageCache(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    Entry get(String key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        (entry == null ? misses : hits).incrementAndGet();
+        return entry;
+    }
+
+    void put(String key, Entry entry) {
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // Keys of the pages in the range, indexed by page index (null outside the range). Must be called before
+    // form markers are written into the pages. The variant covers the extraction settings the page result depends on.
+    static String[] computeKeys(PDDocument document, String variant, int firstIndex, int lastIndex) throws IOException {
+        CosHasher hasher = new CosHasher();
+        String[] keys = new String[document.getNumberOfPages()];
+        for (int i = firstIndex; i <= lastIndex; i++) {
+            keys[i] = computeKey(document.getPage(i), variant, hasher);
+        }
+        return keys;
+    }
+
+    private static String computeKey(PDPage page, String variant, CosHasher hasher) throws IOException {
+        MessageDigest digest = CosHasher.newDigest();
+        digest.update(variant.getBytes(StandardCharsets.UTF_8));
+        updateRectangle(digest, page.getMediaBox());
+        updateRectangle(digest, page.getCropBox());
+        CosHasher.updateInt(digest, page.getRotation());
+        hasher.update(digest, page.getCOSObject().getDictionaryObject(COSName.CONTENTS));
+        PDResources resources = page.getResources();
+        hasher.update(digest, resources == null ? null : resources.getCOSObject());
+
+        // Widgets define the form markers written into the page; their values may be inherited from parent fields
+        for (PDAnnotation annotation : page.getAnnotations()) {
+            if (!(annotation instanceof PDAnnotationWidget)) continue;
+            COSDictionary dictionary = annotation.getCOSObject();
+            while (dictionary != null) {
+                hasher.update(digest, dictionary);
+                COSBase parent = dictionary.getDictionaryObject(COSName.PARENT);
+                dictionary = parent instanceof COSDictionary ? (COSDictionary) parent : null;
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+    }
+
+    private static void updateRectangle(MessageDigest digest, PDRectangle rectangle) {
+        for (float value : new float[]{rectangle.getLowerLeftX(), rectangle.getLowerLeftY(), rectangle.getUpperRightX(), rectangle.getUpperRightY()}) {
+            CosHasher.updateInt(digest, Float.floatToIntBits(value));
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class Entry {
+        private final PageTape tape;
+        private final List<StructuredPage.Question> questions;
+        // Grids of the tables that are not questions
+        private final List<StructuredPage.TableGrid> tables;
+        private final int tableCount;
+    }
+
+    // SHA-256 of COS object graphs. Digests of dictionaries, arrays and streams are memoized per object,
+    // so fonts and forms shared by the pages of a document are read once. Image data does not affect
+    // the extracted text, only the image dictionaries are hashed.
+    private static class CosHasher {
+        private static final byte[] CYCLE = {0};
+
+        private final Map<COSBase, byte[]> digests = new IdentityHashMap<>();
+        private final Set<COSBase> inProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        static MessageDigest newDigest() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        void update(MessageDigest digest, COSBase base) throws IOException {
+            if (base instanceof COSObject) {
+                base = ((COSObject) base).getObject();
+            }
+            if (base instanceof COSDictionary || base instanceof COSArray) {
+                digest.update((byte) 'c');
+                digest.update(containerDigest(base));
+            } else if (base instanceof COSName) {
+                updateString(digest, 'n', ((COSName) base).getName().getBytes(StandardCharsets.UTF_8));
+            } else if (base instanceof COSString) {
+                updateString(digest, 's', ((COSString) base).getBytes());
+            } else if (base instanceof COSNumber) {
+                updateString(digest, 'd', base.toString().getBytes(StandardCharsets.US_ASCII));
+            } else if (base instanceof COSBoolean) {
+                digest.update(((COSBoolean) base).getValue() ? (byte) 'T' : (byte) 'F');
+            } else {
+                digest.update((byte) '0');
+            }
+        }
+
+        static void updateInt(MessageDigest digest, int value) {
+            digest.update(new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value});
+        }
+
+        private byte[] containerDigest(COSBase container) throws IOException {
+            byte[] cached = digests.get(container);
+            if (cached != null) return cached;
+            if (!inProgress.add(container)) return CYCLE;
+
+            MessageDigest digest = newDigest();
+            if (container instanceof COSArray) {
+                COSArray array = (COSArray) container;
+                updateInt(digest, array.size());
+                for (int i = 0; i < array.size(); i++) {
+                    update(digest, array.get(i));
+                }
+            } else {
+                COSDictionary dictionary = (COSDictionary) container;
+                List<COSName> keys = new ArrayList<>(dictionary.keySet());
+                keys.sort(null);
+                for (COSName key : keys) {
+                    if (SKIPPED_KEYS.contains(key.getName())) continue;
+                    update(digest, key);
+                    update(digest, dictionary.getItem(key));
+                }
+                if (container instanceof COSStream && !COSName.IMAGE.equals(dictionary.getCOSName(COSName.SUBTYPE))) {
+                    digest.update((byte) 'b');
+                    try (InputStream data = ((COSStream) container).createRawInputStream()) {
+                        byte[] buffer = new byte[64 * 1024];
+                        int read;
+                        while ((read = data.read(buffer)) != -1) {
+                            digest.update(buffer, 0, read);
+                        }
+                    }
+                }
+            }
+
+            byte[] result = digest.digest();
+            inProgress.remove(container);
+            digests.put(container, result);
+            return result;
+        }
+
+        private void updateString(MessageDigest digest, char type, byte[] bytes) {
+            digest.update((byte) type);
+            updateInt(digest, bytes.length);
+            digest.update(bytes);
+        }
+    }
+}
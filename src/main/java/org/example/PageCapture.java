@@ -0,0 +1,369 @@
+package org.example;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorProcessor;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import technology.tabula.Page;
+import technology.tabula.Rectangle;
+import technology.tabula.RectangleSpatialIndex;
+import technology.tabula.Ruling;
+import technology.tabula.TextElement;
+import technology.tabula.Utils;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Text stripper of one page that also captures what tabula's ObjectExtractor reads from it, the glyphs and the
+// ruling lines, in the same content stream pass (ObjectExtractor parses the page twice more). The tabula page is
+// built after the page is processed and before its text is written, so onPageCaptured can detect the tables that
+// writeString then replaces. Glyphs and rulings are taken the way tabula 1.0 takes them.
+class PageCapture extends PDFTextStripper {
+
+    private static final List<String> PATH_OPERATORS = List.of("m", "l", "c", "v", "y", "re", "h",
+            "S", "s", "f", "F", "f*", "B", "B*", "b", "b*", "n", "W", "W*");
+    private static final String NBSP = "\u00A0";
+
+    private final int pageNumber;
+    private final boolean writeText;
+    private final List<Ruling> rulings = new ArrayList<>();
+    private final GeneralPath currentPath = new GeneralPath();
+    private int clipWindingRule = -1;
+    private AffineTransform pageTransform;
+    private Page page;
+
+    PageCapture(int pageNumber) throws IOException {
+        this(pageNumber, true);
+    }
+
+    private PageCapture(int pageNumber, boolean writeText) throws IOException {
+        this.pageNumber = pageNumber;
+        this.writeText = writeText;
+        setStartPage(pageNumber);
+        setEndPage(pageNumber);
+        for (String operator : PATH_OPERATORS) {
+            addOperator(new PathOperator(operator));
+        }
+    }
+
+    // The tabula page without writing the text, for table detection alone
+    static Page capture(PDDocument document, int pageNumber) throws IOException {
+        PageCapture capture = new PageCapture(pageNumber, false);
+        capture.writeText(document, Writer.nullWriter());
+        return capture.getPage();
+    }
+
+    // Called once the tabula page is built, before the text of the page is written
+    protected void onPageCaptured(Page page) throws IOException {
+    }
+
+    // Only valid after writeText; a page without content has no glyphs and rulings
+    Page getPage() {
+        if (page == null && document != null && pageNumber <= document.getNumberOfPages()) {
+            page = buildPage(document.getPage(pageNumber - 1), new ArrayList<>());
+        }
+        return page;
+    }
+
+    @Override
+    protected void writePage() throws IOException {
+        List<TextElement> characters = new ArrayList<>();
+        for (List<TextPosition> article : getCharactersByArticle()) {
+            for (TextPosition position : article) {
+                TextElement character = toTextElement(position);
+                if (character != null) {
+                    characters.add(character);
+                }
+            }
+        }
+        page = buildPage(getCurrentPage(), characters);
+        onPageCaptured(page);
+        if (writeText) {
+            super.writePage();
+        }
+    }
+
+    private Page buildPage(PDPage pdPage, List<TextElement> characters) {
+        Utils.sort(characters, Rectangle.ILL_DEFINED_ORDER);
+        float minCharWidth = Float.MAX_VALUE;
+        float minCharHeight = Float.MAX_VALUE;
+        RectangleSpatialIndex<TextElement> spatialIndex = new RectangleSpatialIndex<>();
+        for (TextElement character : characters) {
+            minCharWidth = (float) Math.min(minCharWidth, character.getWidth());
+            minCharHeight = (float) Math.min(minCharHeight, character.getHeight());
+            spatialIndex.add(character);
+        }
+        int rotation = pdPage.getRotation();
+        PDRectangle cropBox = pdPage.getCropBox();
+        boolean turned = Math.abs(rotation) == 90 || Math.abs(rotation) == 270;
+        float width = turned ? cropBox.getHeight() : cropBox.getWidth();
+        float height = turned ? cropBox.getWidth() : cropBox.getHeight();
+        return new Page(0, 0, width, height, rotation, pageNumber, pdPage, document, characters, new ArrayList<>(rulings),
+                minCharWidth, minCharHeight, spatialIndex);
+    }
+
+    // Null for glyphs tabula does not read
+    private static TextElement toTextElement(TextPosition position) {
+        String character = position.getUnicode();
+        if (character == null || !isPrintable(character)) return null;
+        if (character.equals(NBSP)) {
+            character = " ";
+        }
+        float height = position.getHeightDir();
+        return new TextElement(Utils.round(position.getYDirAdj() - height, 2), Utils.round(position.getXDirAdj(), 2),
+                Utils.round(position.getWidthDirAdj(), 2), Utils.round(height, 2), position.getFont(), position.getFontSizeInPt(),
+                character, position.getWidthOfSpace(), position.getDir());
+    }
+
+    private static boolean isPrintable(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+            if (!Character.isISOControl(c) && block != null && block != Character.UnicodeBlock.SPECIALS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void processPathOperator(String name, List<COSBase> operands) {
+        switch (name) {
+            case "m": {
+                Point2D.Float[] points = getPoints(operands, 1);
+                if (points != null) {
+                    currentPath.moveTo(points[0].x, points[0].y);
+                }
+                break;
+            }
+            case "l": {
+                Point2D.Float[] points = getPoints(operands, 1);
+                if (points != null && currentPath.getCurrentPoint() != null) {
+                    currentPath.lineTo(points[0].x, points[0].y);
+                }
+                break;
+            }
+            case "c": {
+                Point2D.Float[] points = getPoints(operands, 3);
+                if (points != null && currentPath.getCurrentPoint() != null) {
+                    currentPath.curveTo(points[0].x, points[0].y, points[1].x, points[1].y, points[2].x, points[2].y);
+                }
+                break;
+            }
+            case "v": {
+                Point2D.Float[] points = getPoints(operands, 2);
+                Point2D current = currentPath.getCurrentPoint();
+                if (points != null && current != null) {
+                    currentPath.curveTo((float) current.getX(), (float) current.getY(), points[0].x, points[0].y, points[1].x, points[1].y);
+                }
+                break;
+            }
+            case "y": {
+                Point2D.Float[] points = getPoints(operands, 2);
+                if (points != null && currentPath.getCurrentPoint() != null) {
+                    currentPath.curveTo(points[0].x, points[0].y, points[1].x, points[1].y, points[1].x, points[1].y);
+                }
+                break;
+            }
+            case "re":
+                appendRectangle(operands);
+                break;
+            case "h":
+                closePath();
+                break;
+            case "s":
+            case "b":
+            case "b*":
+                closePath();
+                addRulings();
+                break;
+            case "S":
+            case "f":
+            case "F":
+            case "f*":
+            case "B":
+            case "B*":
+                addRulings();
+                break;
+            case "W":
+                clipWindingRule = GeneralPath.WIND_NON_ZERO;
+                break;
+            case "W*":
+                clipWindingRule = GeneralPath.WIND_EVEN_ODD;
+                break;
+            case "n":
+                // The clipping path is only updated by the painting operator after W
+                if (clipWindingRule != -1) {
+                    currentPath.setWindingRule(clipWindingRule);
+                    getGraphicsState().intersectClippingPath(currentPath);
+                    clipWindingRule = -1;
+                }
+                currentPath.reset();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void appendRectangle(List<COSBase> operands) {
+        float[] values = getNumbers(operands, 4);
+        if (values == null) return;
+        float x = values[0];
+        float y = values[1];
+        float width = values[2];
+        float height = values[3];
+        Point2D.Float p0 = transformedPoint(x, y);
+        Point2D.Float p1 = transformedPoint(x + width, y);
+        Point2D.Float p2 = transformedPoint(x + width, y + height);
+        Point2D.Float p3 = transformedPoint(x, y + height);
+        currentPath.moveTo(p0.x, p0.y);
+        currentPath.lineTo(p1.x, p1.y);
+        currentPath.lineTo(p2.x, p2.y);
+        currentPath.lineTo(p3.x, p3.y);
+        currentPath.closePath();
+    }
+
+    private void closePath() {
+        if (currentPath.getCurrentPoint() != null) {
+            currentPath.closePath();
+        }
+    }
+
+    // Every straight segment of a painted path is a ruling; paths with curves are not rulings at all
+    private void addRulings() {
+        if (currentPath.getCurrentPoint() == null) {
+            currentPath.reset();
+            return;
+        }
+        float[] coordinates = new float[6];
+        PathIterator iterator = currentPath.getPathIterator(getPageTransform());
+        if (iterator.currentSegment(coordinates) != PathIterator.SEG_MOVETO) {
+            currentPath.reset();
+            return;
+        }
+        for (iterator.next(); !iterator.isDone(); iterator.next()) {
+            int segment = iterator.currentSegment(coordinates);
+            if (segment != PathIterator.SEG_LINETO && segment != PathIterator.SEG_CLOSE && segment != PathIterator.SEG_MOVETO) {
+                currentPath.reset();
+                return;
+            }
+        }
+
+        Rectangle2D clip = getPageTransform().createTransformedShape(getGraphicsState().getCurrentClippingPath()).getBounds2D();
+        iterator = currentPath.getPathIterator(getPageTransform());
+        iterator.currentSegment(coordinates);
+        Point2D.Float start = new Point2D.Float(Utils.round(coordinates[0], 2), Utils.round(coordinates[1], 2));
+        Point2D.Float lastMove = start;
+        Point2D.Float end = null;
+        for (iterator.next(); !iterator.isDone(); iterator.next()) {
+            switch (iterator.currentSegment(coordinates)) {
+                case PathIterator.SEG_LINETO:
+                    end = new Point2D.Float(coordinates[0], coordinates[1]);
+                    addRuling(start, end, clip);
+                    break;
+                case PathIterator.SEG_MOVETO:
+                    lastMove = new Point2D.Float(coordinates[0], coordinates[1]);
+                    end = lastMove;
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    // Closing appends a segment back to the last move
+                    if (end != null) {
+                        addRuling(end, lastMove, clip);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            start = end;
+        }
+        currentPath.reset();
+    }
+
+    private void addRuling(Point2D.Float from, Point2D.Float to, Rectangle2D clip) {
+        if (from == null || to == null) return;
+        Line2D.Float line = comparePoints(from, to) < 0 ? new Line2D.Float(from, to) : new Line2D.Float(to, from);
+        if (line.intersects(clip)) {
+            Ruling ruling = new Ruling(line.getP1(), line.getP2()).intersect(clip);
+            if (ruling.length() > 0.01) {
+                rulings.add(ruling);
+            }
+        }
+    }
+
+    // Top to bottom, then left to right, at a precision of 0.01
+    private static int comparePoints(Point2D a, Point2D b) {
+        int byY = Float.compare(Utils.round(a.getY(), 2), Utils.round(b.getY(), 2));
+        return byY != 0 ? byY : Float.compare(Utils.round(a.getX(), 2), Utils.round(b.getX(), 2));
+    }
+
+    // PDF user space to tabula's page space: y grows downwards from the top of the crop box
+    private AffineTransform getPageTransform() {
+        if (pageTransform != null) return pageTransform;
+        PDPage pdPage = getCurrentPage();
+        PDRectangle cropBox = pdPage.getCropBox();
+        int rotation = Math.abs(pdPage.getRotation());
+        if (rotation == 90 || rotation == 270) {
+            pageTransform = AffineTransform.getRotateInstance(rotation * (Math.PI / 180.0), 0, 0);
+        } else {
+            pageTransform = AffineTransform.getTranslateInstance(0, cropBox.getHeight());
+        }
+        pageTransform.concatenate(AffineTransform.getScaleInstance(1, -1));
+        pageTransform.translate(-cropBox.getLowerLeftX(), -cropBox.getLowerLeftY());
+        return pageTransform;
+    }
+
+    private Point2D.Float transformedPoint(float x, float y) {
+        return getGraphicsState().getCurrentTransformationMatrix().transformPoint(x, y);
+    }
+
+    // Points of the first count coordinate pairs, in device space; null if the operands are malformed
+    private Point2D.Float[] getPoints(List<COSBase> operands, int count) {
+        float[] values = getNumbers(operands, count * 2);
+        if (values == null) return null;
+        Point2D.Float[] points = new Point2D.Float[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = transformedPoint(values[2 * i], values[2 * i + 1]);
+        }
+        return points;
+    }
+
+    private static float[] getNumbers(List<COSBase> operands, int count) {
+        if (operands.size() < count) return null;
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            if (!(operands.get(i) instanceof COSNumber)) return null;
+            values[i] = ((COSNumber) operands.get(i)).floatValue();
+        }
+        return values;
+    }
+
+    private class PathOperator extends OperatorProcessor {
+        private final String name;
+
+        private PathOperator(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void process(Operator operator, List<COSBase> operands) {
+            processPathOperator(name, operands);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.example;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface PageListener {
+    void onPage(FilePage page) throws IOException;
+}
@@ -0,0 +1,19 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Destination for extracted pages and chunks. Pages are written as soon as they are produced,
+// so a sink never needs the whole document in memory.
+public interface PageSink extends Closeable {
+
+    default void beginDocument(String documentId) throws IOException {
+    }
+
+    void writePage(FilePage page) throws IOException;
+
+    void writeChunk(PdfWriter.FileChunk chunk) throws IOException;
+
+    default void endDocument() throws IOException {
+    }
+}
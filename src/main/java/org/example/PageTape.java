@@ -0,0 +1,84 @@
+package org.example;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Page text as the stripper wrote it. Every line that may be removed as a header, footer or boilerplate line
+// is kept as a separate segment with the regions its text touches, so the same tape renders the cleaned
+// text for any set of repetitive lines. Tapes are immutable once finished and can be shared between threads.
+class PageTape extends Writer {
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final StringBuilder current = new StringBuilder();
+    private String currentLine;
+    private int currentRegionMask;
+
+    @FunctionalInterface
+    interface LineFilter {
+        boolean isRemoved(String line, int regionMask);
+    }
+
+    // Text written until endLine() is dropped from the rendered page when the filter removes the line
+    void beginLine(String line, int regionMask) {
+        finishSegment();
+        currentLine = line;
+        currentRegionMask = regionMask;
+    }
+
+    void endLine() {
+        finishSegment();
+    }
+
+    // The tape must be closed before it is rendered
+    String render(LineFilter filter) {
+        StringBuilder text = new StringBuilder();
+        for (Segment segment : segments) {
+            if (segment.line == null || !filter.isRemoved(segment.line, segment.regionMask)) {
+                text.append(segment.text);
+            }
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        current.append(cbuf, off, len);
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        current.append(str, off, off + len);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        finishSegment();
+    }
+
+    private void finishSegment() {
+        if (current.length() > 0 || currentLine != null) {
+            segments.add(new Segment(current.toString(), currentLine, currentRegionMask));
+            current.setLength(0);
+        }
+        currentLine = null;
+        currentRegionMask = 0;
+    }
+
+    private static class Segment {
+        private final String text;
+        // Null for text that is always written
+        private final String line;
+        private final int regionMask;
+
+        private Segment(String text, String line, int regionMask) {
+            this.text = text;
+            this.line = line;
+            this.regionMask = regionMask;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Single entry point for scripts:
+//   extract <file|dir> [--out=dir] [--format=md|txt|jsonl|bin] [--raw] [--chunks] [--resume] [--retry-failed] [--pages=10-20] [--stages=text,tables,forms,cleanup] [--sampled-threshold=pages] [--tables=tabula|lines] [--reading-order=position|xy-cut] [--boilerplate=phrases.txt] [--page-cache=pages] [--table-cache=layouts] [--near-duplicates=documents] [--index=dir] [--threads=n] [--heap-budget=MB] [--detection-threads=n]
+//   serve [--port=8090] [--workers=n] [--queue=n] [--warm-up=iterations] [--page-cache=pages] [--table-cache=layouts] [--near-duplicates=documents] [--tables=...] [--boilerplate=...]
+//   train [dir]   - extraction run used to record the AppCDS class archive (see the appcds profile)
+//   soak [dir] [--duration=minutes] [--sample-every=seconds] [--max-heap-growth=MB/hour] [--max-slowdown=percent/hour]
+//   coordinate <file|dir>... --queue=dir [--out=dir] [--format=md|txt|jsonl] [--chunks] [--workers=n] [--pages-per-task=pages] [--worker-heap=2g] [--lease-timeout=seconds]
+//   work --queue=dir [--lease-timeout=seconds]   - worker of a coordinator, also on other nodes sharing the queue directory
+public class PdfExtractorCli {
+
+    private static final String DEFAULT_OUTPUT_DIR = "./output";
+    // Length-prefixed binary pages with blocks, tables, form values and questions (StructuredResultWriter)
+    private static final String STRUCTURED_FORMAT = "bin";
+    // Journal of the batch in the output directory, used with --resume
+    private static final String MANIFEST_FILE = ".extract-manifest";
+    // Output is written under this suffix and renamed when complete
+    private static final String PARTIAL_OUTPUT_SUFFIX = ".part";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            printUsage();
+            System.exit(2);
+        }
+        String command = args[0];
+        String[] commandArgs = Arrays.copyOfRange(args, 1, args.length);
+        switch (command) {
+            case "extract":
+                System.exit(extract(new CommandLineOptions(commandArgs)));
+                break;
+            case "serve":
+                ExtractionServer.main(commandArgs);
+                break;
+            case "train":
+                train(new CommandLineOptions(commandArgs));
+                break;
+            case "soak":
+                SoakHarness.main(commandArgs);
+                break;
+            case "coordinate":
+                System.exit(ShardedExtraction.coordinate(new CommandLineOptions(commandArgs)));
+                break;
+            case "work":
+                System.exit(ShardedExtraction.work(new CommandLineOptions(commandArgs)));
+                break;
+            default:
+                printUsage();
+                System.exit(2);
+        }
+    }
+
+    private static int extract(CommandLineOptions options) {
+        if (options.getArguments().isEmpty()) {
+            printUsage();
+            return 2;
+        }
+        File outputDir = new File(options.get("out", DEFAULT_OUTPUT_DIR));
+        String format = options.get("format", "md");
+        if (!format.equals(STRUCTURED_FORMAT)) {
+            OutputSinks.checkFormat(format);
+        }
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IllegalArgumentException("Can not create output directory: " + outputDir);
+        }
+
+        ExtractionRequest request = ExtractionRequest.parse(options.get("pages", null), options.get("stages", null));
+        // Documents run on --threads threads, documents larger than their share of the batch in page ranges.
+        // The cores are shared by the documents, each detects its headers and footers on its share of them.
+        int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+        ExtractionEngine engine;
+        try {
+            ExtractionConfig config = createConfig(options);
+            if (!options.has("detection-threads")) {
+                config = config.toBuilder().detectionParallelism(ExtractionConfig.getDetectionParallelism(threads)).build();
+            }
+            engine = new ExtractionEngine(config);
+        } catch (IOException e) {
+            System.err.println("Can not read boilerplate phrases: " + e.getMessage());
+            return 2;
+        }
+
+        // Pages or chunks are indexed while they are written, one index for the whole batch
+        LuceneIndexSink index = null;
+        if (options.has("index")) {
+            try {
+                index = new LuceneIndexSink(Paths.get(options.get("index", null)));
+            } catch (IOException e) {
+                System.err.println("Can not open search index: " + e.getMessage());
+                return 2;
+            }
+        }
+
+        // A resumed run skips the documents a previous run finished and retries the interrupted ones
+        BatchManifest manifest = null;
+        if (options.getBoolean("resume")) {
+            try {
+                manifest = BatchManifest.open(new File(outputDir, MANIFEST_FILE).toPath());
+            } catch (IOException e) {
+                System.err.println("Can not open batch manifest: " + e.getMessage());
+                return 2;
+            }
+        }
+        boolean retryFailed = options.getBoolean("retry-failed");
+
+        ExtractionPlanner planner = options.has("heap-budget")
+                ? new ExtractionPlanner(engine, threads, options.getInt("heap-budget", 0) * 1024L * 1024L)
+                : new ExtractionPlanner(engine, threads);
+        // Raw text and page ranges of a document are extracted whole
+        boolean splittable = !options.getBoolean("raw") && request.getFirstPage() <= 1 && request.getLastPage() == Integer.MAX_VALUE;
+
+        AtomicInteger failed = new AtomicInteger();
+        int skipped = 0;
+        try {
+            List<File> files = new ArrayList<>();
+            for (File file : listPdfFiles(options.getArguments())) {
+                if (manifest != null && manifest.isFinished(file, retryFailed)) {
+                    skipped++;
+                } else {
+                    files.add(file);
+                }
+            }
+            BatchManifest batchManifest = manifest;
+            LuceneIndexSink batchIndex = index;
+            planner.run(planner.plan(files, splittable), document -> {
+                File file = document.getFile();
+                long start = System.currentTimeMillis();
+                File outputFile = new File(outputDir, file.getName().replaceAll("(?i)\\.pdf$", "." + format));
+                // Every document is indexed through its own sink, which adds the document in one block when it ends;
+                // a failed document is never added
+                LuceneIndexSink.DocumentSink documentIndex = batchIndex == null || format.equals(STRUCTURED_FORMAT)
+                        ? null : batchIndex.newDocumentSink();
+                try {
+                    if (batchManifest != null) {
+                        batchManifest.started(file);
+                    }
+                    extractFile(planner, document, request, outputFile, format, documentIndex, options);
+                    if (batchManifest != null && documentIndex != null) {
+                        // A resumed run must not skip a document whose index entries were lost in a crash
+                        documentIndex.whenCommitted(() -> batchManifest.done(file));
+                    } else if (batchManifest != null) {
+                        batchManifest.done(file);
+                    }
+                    long end = System.currentTimeMillis();
+                    System.out.println(file.getName() + " processed. Executed time: " + (double) (end - start) / 1000 + "s");
+                } catch (IOException | RuntimeException e) {
+                    failed.incrementAndGet();
+                    System.err.println(file.getName() + " failed: " + e.getMessage());
+                    if (batchManifest != null) {
+                        batchManifest.failed(file, String.valueOf(e.getMessage()));
+                    }
+                } finally {
+                    if (documentIndex != null) {
+                        documentIndex.close();
+                    }
+                }
+            });
+        } catch (IOException e) {
+            // The journal can not be written, going on would lose the progress on the next restart
+            failed.incrementAndGet();
+            System.err.println("Can not write batch manifest: " + e.getMessage());
+        } finally {
+            // The last commit records its documents as done, so the index is closed before the manifest
+            if (index != null) {
+                try {
+                    index.close();
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                    System.err.println("Can not commit search index: " + e.getMessage());
+                }
+            }
+            closeQuietly(manifest);
+        }
+        if (skipped > 0) {
+            System.out.println("Skipped " + skipped + " documents finished by an earlier run");
+        }
+        PageCache pageCache = engine.getPageCache();
+        if (pageCache != null) {
+            System.out.println("Page cache: " + pageCache.getHits() + " hits, " + pageCache.getMisses() + " misses");
+        }
+        TableTemplateCache tableTemplates = engine.getTableTemplateCache();
+        if (tableTemplates != null) {
+            System.out.println("Table layouts: " + tableTemplates.getHits() + " reused, " + tableTemplates.getMisses() + " detected");
+        }
+        NearDuplicateIndex nearDuplicates = engine.getNearDuplicateIndex();
+        if (nearDuplicates != null) {
+            System.out.println("Earlier revisions found: " + nearDuplicates.getHits() + ", not found: " + nearDuplicates.getMisses());
+        }
+        return failed.get() == 0 ? 0 : 1;
+    }
+
+    // Output appears under its name only when complete. The index is null if not requested; structured output is not indexed.
+    private static void extractFile(ExtractionPlanner planner, ExtractionPlanner.PlannedDocument document, ExtractionRequest request,
+                                    File outputFile, String format, PageSink index, CommandLineOptions options) throws IOException {
+        File partialFile = new File(outputFile.getPath() + PARTIAL_OUTPUT_SUFFIX);
+        try {
+            if (format.equals(STRUCTURED_FORMAT)) {
+                extractStructuredFile(planner, document, request, partialFile);
+            } else {
+                extractFile(planner, document, request, partialFile, format, index, options.getBoolean("raw"), options.getBoolean("chunks"));
+            }
+            BatchManifest.moveAtomically(partialFile.toPath(), outputFile.toPath());
+        } finally {
+            Files.deleteIfExists(partialFile.toPath());
+        }
+    }
+
+    private static void extractFile(ExtractionPlanner planner, ExtractionPlanner.PlannedDocument document, ExtractionRequest request,
+                                    File outputFile, String format, PageSink index, boolean raw, boolean chunks) throws IOException {
+        try (PageSink sink = new AsyncPageSink(createSink(format, outputFile, index))) {
+            sink.beginDocument(document.getFile().getName());
+            if (chunks) {
+                PdfWriter.ChunkSplitter splitter = new PdfWriter.ChunkSplitter(sink::writeChunk);
+                extract(planner, document, request, !raw, splitter::accept);
+                splitter.finish();
+            } else {
+                extract(planner, document, request, !raw, sink::writePage);
+            }
+            sink.endDocument();
+        }
+    }
+
+    private static PageSink createSink(String format, File outputFile, PageSink index) throws IOException {
+        PageSink output = OutputSinks.create(format, outputFile.toPath());
+        return index == null ? output : OutputSinks.tee(output, index);
+    }
+
+    // --raw ignores the requested pages and stages
+    private static void extract(ExtractionPlanner planner, ExtractionPlanner.PlannedDocument document, ExtractionRequest request,
+                                boolean cleanPages, PageListener listener) throws IOException {
+        if (cleanPages) {
+            planner.extract(document, request, (session, range, pages) -> session.extract(range, pages),
+                    (page, structure) -> listener.onPage(page));
+        } else {
+            planner.extract(document, request, (session, range, pages) -> session.extract(false, page -> pages.onPage(page, null)),
+                    (page, structure) -> listener.onPage(page));
+        }
+    }
+
+    private static void extractStructuredFile(ExtractionPlanner planner, ExtractionPlanner.PlannedDocument document,
+                                              ExtractionRequest request, File outputFile) throws IOException {
+        try (StructuredResultWriter writer = StructuredResultWriter.create(outputFile.toPath())) {
+            planner.extract(document, request, (session, range, pages) -> session.extractStructured(range, pages),
+                    (page, structure) -> writer.write(structure));
+        }
+    }
+
+    private static void closeQuietly(BatchManifest manifest) {
+        if (manifest == null) return;
+        try {
+            manifest.close();
+        } catch (IOException e) {
+            System.err.println("Can not close batch manifest: " + e.getMessage());
+        }
+    }
+
+    // One engine for the whole batch: template pages shared by the documents are extracted once
+    static ExtractionConfig createConfig(CommandLineOptions options) throws IOException {
+        ExtractionConfig.ExtractionConfigBuilder config = ExtractionConfig.builder()
+                .tableBackend(options.get("tables", "tabula"))
+                .readingOrder(options.get("reading-order", ExtractionConfig.POSITION_READING_ORDER))
+                .sampledDetectionPageThreshold(options.getInt("sampled-threshold", ExtractionConfig.DEFAULT_SAMPLED_DETECTION_PAGE_THRESHOLD))
+                .pageCacheSize(options.getInt("page-cache", 0))
+                .tableTemplateCacheSize(options.getInt("table-cache", 0))
+                .nearDuplicateDocuments(options.getInt("near-duplicates", 0));
+        if (options.has("detection-threads")) {
+            config.detectionParallelism(options.getInt("detection-threads", 1));
+        }
+        if (options.has("boilerplate")) {
+            // One phrase per line
+            config.boilerplatePhrases(BoilerplateMatcher.readPhrases(Paths.get(options.get("boilerplate", null))));
+        }
+        return config.build();
+    }
+
+    // Exercises every extraction path once, so the JVM loads the same classes a real run would
+    private static void train(CommandLineOptions options) throws IOException {
+        for (boolean cleanPages : new boolean[]{true, false}) {
+            try (PDDocument document = SyntheticDocument.load()) {
+                List<FilePage> pages = ExtractionEngine.getDefault().newSession(document).extract(cleanPages);
+                PdfWriter.splitSselDocumentToChunks(pages);
+            }
+        }
+        if (options.getArguments().isEmpty()) return;
+        for (File file : listPdfFiles(options.getArguments())) {
+            try (PDDocument document = PDDocument.load(file)) {
+                ExtractionEngine.getDefault().newSession(document, file.getName()).extract(true);
+            } catch (IOException | RuntimeException e) {
+                System.err.println(file.getName() + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    static List<File> listPdfFiles(List<String> paths) {
+        List<File> files = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                File[] filesArray = file.listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf"));
+                if (filesArray != null) {
+                    Arrays.sort(filesArray);
+                    files.addAll(Arrays.asList(filesArray));
+                }
+            } else if (file.isFile()) {
+                files.add(file);
+            } else {
+                throw new IllegalArgumentException("File not found: " + path);
+            }
+        }
+        return files;
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage:");
+        System.err.println("  pdf-extractor extract <file|dir>... [--out=dir] [--format=md|txt|jsonl|bin] [--raw] [--chunks] [--resume] [--retry-failed] [--pages=10-20] [--stages=text,tables,forms,cleanup] [--sampled-threshold=pages] [--tables=tabula|lines] [--reading-order=position|xy-cut] [--boilerplate=phrases.txt] [--page-cache=pages] [--table-cache=layouts] [--near-duplicates=documents] [--index=dir] [--threads=n] [--heap-budget=MB] [--detection-threads=n]");
+        System.err.println("  pdf-extractor serve [--port=8090] [--workers=n] [--queue=n] [--warm-up=iterations] [--page-cache=pages] [--table-cache=layouts] [--near-duplicates=documents] [--tables=...] [--boilerplate=...]");
+        System.err.println("  pdf-extractor train [dir]");
+        System.err.println("  pdf-extractor soak [dir] [--duration=minutes] [--sample-every=seconds] [--max-heap-growth=MB/hour] [--max-slowdown=percent/hour]");
+        System.err.println("  pdf-extractor coordinate <file|dir>... --queue=dir [--out=dir] [--format=md|txt|jsonl] [--chunks] [--workers=n] [--pages-per-task=pages] [--worker-heap=2g] [--lease-timeout=seconds] [--detection-threads=n] [--stages=...] [--tables=...] [--reading-order=...] [--boilerplate=...] [--page-cache=pages] [--table-cache=layouts]");
+        System.err.println("  pdf-extractor work --queue=dir [--lease-timeout=seconds] [--detection-threads=n] [--stages=...] [--tables=...] [--reading-order=...] [--boilerplate=...] [--page-cache=pages] [--table-cache=layouts]");
+    }
+}
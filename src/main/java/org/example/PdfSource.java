@@ -0,0 +1,22 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.File;
+import java.io.IOException;
+
+// Opens independent handles of the same PDF. PDDocument is not thread-safe,
+// so every worker that reads pages in parallel needs its own handle.
+@FunctionalInterface
+public interface PdfSource {
+
+    PDDocument open() throws IOException;
+
+    static PdfSource of(File file) {
+        return () -> PDDocument.load(file);
+    }
+
+    static PdfSource of(byte[] bytes) {
+        return () -> PDDocument.load(bytes);
+    }
+}
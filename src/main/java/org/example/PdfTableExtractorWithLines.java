@@ -20,6 +20,14 @@ public class PdfTableExtractorWithLines {
     private final List<Line2D> horizontalLines = new ArrayList<>();
     private final List<Line2D> verticalLines = new ArrayList<>();
 
+    public List<Line2D> getHorizontalLines() {
+        return horizontalLines;
+    }
+
+    public List<Line2D> getVerticalLines() {
+        return verticalLines;
+    }
+
     public void extractLinesFromPage(PDPage page, int pageNum) throws IOException {
         PDFLineExtractor lineExtractor = new PDFLineExtractor(pageNum);
         lineExtractor.processPage(page);
@@ -64,6 +72,27 @@ public class PdfTableExtractorWithLines {
                 }
             });
 
+            addOperator(new OperatorProcessor() {
+                @Override
+                public void process(Operator operator, List<COSBase> operands) {
+                    if (operands.size() == 4) {
+                        float x = ((COSNumber) operands.get(0)).floatValue();
+                        float y = ((COSNumber) operands.get(1)).floatValue();
+                        float width = ((COSNumber) operands.get(2)).floatValue();
+                        float height = ((COSNumber) operands.get(3)).floatValue();
+                        addLine(new Line2D.Float(x, y, x + width, y));
+                        addLine(new Line2D.Float(x, y + height, x + width, y + height));
+                        addLine(new Line2D.Float(x, y, x, y + height));
+                        addLine(new Line2D.Float(x + width, y, x + width, y + height));
+                    }
+                }
+
+                @Override
+                public String getName() {
+                    return "re";  // "re" is the PDF operator for "append rectangle"
+                }
+            });
+
             addOperator(new OperatorProcessor() {
                 @Override
                 public void process(Operator operator, List<COSBase> operands) {
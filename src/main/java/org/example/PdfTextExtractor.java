@@ -1,10 +1,16 @@
 package org.example;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import lombok.*;
 import org.apache.pdfbox.pdmodel.PDPage;
@@ -15,8 +21,6 @@ import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
 import org.apache.pdfbox.pdmodel.interactive.form.*;
 import org.apache.pdfbox.util.Matrix;
 import technology.tabula.*;
-import technology.tabula.extractors.ExtractionAlgorithm;
-import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.math3.util.Pair;
@@ -27,41 +31,91 @@ import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.PDFTextStripperByArea;
 import org.apache.pdfbox.text.TextPosition;
 
+// Extraction session of one document, created by ExtractionEngine. Holds the per-document state
+// (form fields, cache keys, classification), so a session must not be shared between threads.
 public class PdfTextExtractor {
 
     private static final String FOOTER_REGION = "footer";
     private static final String HEADER_REGION = "header";
     private static final String BODY_REGION = "body";
-    private static final List<String> POTENTIAL_EXTRA_BODY_LINES = List.of(
-            "(No file attached)", "Please upload supporting document"
-    );
-    private static final float SIMILARITY_THRESHOLD = 0.8f;
-    private static final float FREQUENCY_THRESHOLD = 0.7f;
-    private static final int HEADER_AND_FOOTER_HEIGHT = 75;
-    private static final int MIN_TABLE_CELL_HEIGHT_AND_WIDTH = 10;
+    // Sample size for estimating line frequencies: 95% confidence, 5% margin of error
+    private static final double SAMPLING_Z_SCORE = 1.96;
+    private static final double SAMPLING_MARGIN_OF_ERROR = 0.05;
+    private static final int HEAVY_HITTERS_CAPACITY = 512;
+    // Opening a document handle per worker only pays off with enough pages per worker
+    private static final int MIN_PAGES_PER_DETECTION_WORKER = 16;
+    // Pages counted by header/footer detection for a page range smaller than the document
+    private static final int MIN_DETECTION_WINDOW_PAGES = 40;
+    private static final Pattern DIGITS_PATTERN = Pattern.compile("\\d+");
+    private static final String DIGITS_PLACEHOLDER = "#";
+    private static final float BLOCK_LINE_GAP_RATIO = 0.8f;
+    private static final Pattern QUESTION_NUMBER_PATTERN = Pattern.compile("^(\\d+(?:\\.\\d+)*)\\s");
+    // Example: 1.4.3 Question1?
+    private static final Pattern QUESTION_FORMAT_PATTERN = Pattern.compile("^\\d+(\\.\\d+)*\\s\\w+");
+    private static final Pattern CHECK_BOX_ANSWER_PATTERN = Pattern.compile("^(\\[\\s+\\]|\\[x\\])\\s.*");
+    private static final Pattern RADIO_BUTTON_ANSWER_PATTERN = Pattern.compile("^(\\(\\s+\\)|\\(o\\))\\s.*");
+    private static final Pattern CHECK_BOX_SELECTED_PATTERN = Pattern.compile("^\\[x\\]\\s.*");
+    private static final Pattern RADIO_BUTTON_SELECTED_PATTERN = Pattern.compile("^\\(o\\)\\s.*");
+    private static final Pattern RADIO_BUTTON_SELECTED_ANSWER_PATTERN = Pattern.compile("\\(o\\)\\s[^()]+");
+    private static final Pattern LINE_BREAK_PATTERN = Pattern.compile("\\r?\\n");
+    private static final Pattern EXTRA_EMPTY_LINES_PATTERN = Pattern.compile("(\r\n){2,}");
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
 
     // Levenshtein distance calculator for string similarity
     private static final LevenshteinDistance levenshteinDistance = new LevenshteinDistance();
-    private static final boolean convertTableToReadableFormat = true;
-    private static final boolean tablesWithHeader = false;
+    private final ExtractionEngine engine;
+    private final ExtractionConfig config;
     private final PDFTextStripperByArea stripperByArea;
     private final PDDocument document;
     private final PDRectangle mediaBox;
-    private final ExtractionAlgorithm tableExtractionAlgorithm;
+    // Header, footer and body regions of the pages
+    private final List<RectangleRegion> regions;
+    private final TableExtractor tableExtractor;
     private final Map<String, FormField> formData = new HashMap<>();
     private final String FORM_DATA_PREFIX = ".)-&f*?5%f"; // Prefix for generating unique identifiers
-    private final String QUESTION_START_PREFIX = "#%*&q1v1\r";
-    private final boolean isSselDocument;
+    // Marks the start of a question table while the page text is produced, cut out before the page is returned
+    private static final char QUESTION_MARKER = '\uFFFF';
+    // Classified on first use
+    private Boolean isSselDocument;
+    // Identifies the document in flight recorder events
+    private final String documentId;
+    private PdfSource source;
+    // Cache keys of the pages, computed before form markers are written into the document
+    private String[] pageKeys;
+    // Pages of the closest earlier revision of this document, by page key
+    private Map<String, PageCache.Entry> reusedPages;
+    // Pages of this document for the near-duplicate index, by page key
+    private Map<String, PageCache.Entry> recordedPages;
+    // Repetitive lines of the whole document, set when the session extracts one page range of a split document
+    private DuplicateLines documentDuplicates;
+
+    // Session of the default engine
+    public PdfTextExtractor(PDDocument document) {
+        this(ExtractionEngine.getDefault(), document, TableExtractor.forName(ExtractionConfig.defaults().getTableBackend()), null);
+    }
 
-    public PdfTextExtractor(PDDocument document) throws IOException {
+    PdfTextExtractor(ExtractionEngine engine, PDDocument document, TableExtractor tableExtractor, String documentId) {
+        this.engine = engine;
+        this.config = engine.getConfig();
         this.document = document;
         this.stripperByArea = new PDFTextStripperByArea();
-        this.tableExtractionAlgorithm = new SpreadsheetExtractionAlgorithm().withMinSpacingBetweenRulings(MIN_TABLE_CELL_HEIGHT_AND_WIDTH);
+        this.tableExtractor = tableExtractor;
+        this.documentId = documentId;
         this.mediaBox = document.getPage(0).getMediaBox();
-        this.isSselDocument = hasTableOfContentPage() && hasProjectDetailsPage();
+        // Determine the dimensions of the PDF page
+        this.regions = getRectangleRegions(mediaBox);
     }
 
-    public boolean isSselDocument() {
+    public boolean isSselDocument() throws IOException {
+        if (isSselDocument == null) {
+            ExtractionEvents.Classification event = new ExtractionEvents.Classification();
+            event.begin();
+            isSselDocument = hasTableOfContentPage() && hasProjectDetailsPage();
+            event.documentId = documentId;
+            event.pageCount = document.getNumberOfPages();
+            event.sselDocument = isSselDocument;
+            event.commit();
+        }
         return isSselDocument;
     }
 
@@ -70,17 +124,18 @@ public class PdfTextExtractor {
         return pageText.startsWith("TABLE OF CONTENTS");
     }
 
-    public String getQuestionStartPrefix() {
-        return QUESTION_START_PREFIX;
+    // Source of independent handles of this document, enables parallel header/footer detection.
+    // Workers read the original pages; detection runs before form markers are written into the document.
+    public void setSource(PdfSource source) {
+        this.source = source;
     }
 
     private final List<String> PROJECT_DETAILS_COLUMNS = List.of("Project Title", "Status", "Author", "Response Deadline", "Created", "Published", "Visibility", "Categories", "Scoring Formula", "Synopsis");
-    private boolean hasProjectDetailsPage() {
-        ObjectExtractor extractor = new ObjectExtractor(document);
-        Page page = extractor.extract(2);
-        List<Table> tables = (List<Table>) tableExtractionAlgorithm.extract(page);
+    private boolean hasProjectDetailsPage() throws IOException {
+        Page page = PageCapture.capture(document, 2);
+        List<StructuredPage.TableGrid> tables = tableExtractor.extract(document, page);
         if (tables.size() != 1) return false;
-        Table table = tables.get(0);
+        StructuredPage.TableGrid table = tables.get(0);
         List<Boolean> columns = new ArrayList<>(Collections.nCopies(PROJECT_DETAILS_COLUMNS.size(), false));
         for (int i = 0; i < table.getRows().size(); i++) {
             String cellText = table.getRows().get(i).get(0).getText();
@@ -95,37 +150,159 @@ public class PdfTextExtractor {
     }
 
     public List<FilePage> extract(boolean cleanPages) throws IOException {
-        ObjectExtractor extractor = new ObjectExtractor(document);
-        PageIterator pageIterator = extractor.extract();
         List<FilePage> filePages = new ArrayList<>();
+        extract(cleanPages, filePages::add);
+        return filePages;
+    }
+
+    // Streams pages to the listener as soon as each one is extracted
+    public void extract(boolean cleanPages, PageListener listener) throws IOException {
         if (cleanPages) {
-            // Determine the dimensions of the PDF page
-            List<RectangleRegion> regions = getRectangleRegions(mediaBox);
+            extract(ExtractionRequest.allPages(), false, (page, structure) -> listener.onPage(page));
+            return;
+        }
+        for (int pageNumber = 1; pageNumber <= document.getNumberOfPages(); pageNumber++) {
+            ExtractionEvents.PageStrip event = new ExtractionEvents.PageStrip();
+            event.begin();
+            FilePage filePage = new FilePage(getPdfPageText(pageNumber), pageNumber);
+            event.documentId = documentId;
+            event.pageNumber = pageNumber;
+            event.characterCount = filePage.getText().length();
+            event.commit();
+            listener.onPage(filePage);
+        }
+    }
+
+    // Only the requested pages and stages. The structure holds the tables, form values and questions of the page;
+    // the page text is empty unless the TEXT stage is requested. Form markers are written into the document,
+    // so a session serves one request.
+    public void extract(ExtractionRequest request, StructuredPageListener listener) throws IOException {
+        extract(request, false, listener);
+    }
 
-            processFormData();
+    // Clean extraction that also reports the page layout: text blocks, table grids, form values and questions
+    public void extractStructured(StructuredPageListener listener) throws IOException {
+        extract(ExtractionRequest.allPages(), true, listener);
+    }
 
-            Map<String, Set<RectangleRegion>> duplicates = findRepetitiveLinesAndPatterns(regions);
+    public void extractStructured(ExtractionRequest request, StructuredPageListener listener) throws IOException {
+        extract(request, true, listener);
+    }
 
-            while (pageIterator.hasNext()) {
-                Page page = pageIterator.next();
-                filePages.add(new FilePage(getPdfPageText(page, duplicates), page.getPageNumber()));
-            }
+    private void extract(ExtractionRequest request, boolean withLayout, StructuredPageListener listener) throws IOException {
+        int firstIndex = Math.max(1, request.getFirstPage()) - 1;
+        int lastIndex = Math.min(document.getNumberOfPages(), request.getLastPage()) - 1;
+        boolean withText = request.has(ExtractionRequest.Stage.TEXT);
+        boolean withTables = request.has(ExtractionRequest.Stage.TABLES) && config.isConvertTableToReadableFormat();
+        boolean withForms = request.has(ExtractionRequest.Stage.FORMS);
+        if (firstIndex > lastIndex) return;
+
+        boolean withCleanup = withText && request.has(ExtractionRequest.Stage.CLEANUP);
+        // Only whole documents are compared with earlier revisions, text blocks are never reused
+        boolean wholeDocument = firstIndex == 0 && lastIndex == document.getNumberOfPages() - 1;
+        NearDuplicateIndex nearDuplicates = withCleanup && wholeDocument && !withLayout ? engine.getNearDuplicateIndex() : null;
+
+        if (withText && (engine.getPageCache() != null || nearDuplicates != null)) {
+            pageKeys = PageCache.computeKeys(document, getPageCacheVariant(withTables, withForms), firstIndex, lastIndex);
+        }
+        NearDuplicateIndex.Match revision = nearDuplicates == null ? null : findEarlierRevision(nearDuplicates);
+        if (nearDuplicates != null) {
+            reusedPages = revision == null ? null : revision.getPages();
+            recordedPages = new HashMap<>();
+        }
+
+        DuplicateLines duplicates;
+        if (!withCleanup) {
+            duplicates = new DuplicateLines(Collections.emptyMap(), Collections.emptyMap());
+        } else if (documentDuplicates != null) {
+            duplicates = documentDuplicates;
+        } else if (revision != null) {
+            // Repetitive lines of a revision that shares most pages are the repetitive lines of this document
+            duplicates = revision.getDuplicates();
         } else {
-            while (pageIterator.hasNext()) {
-                Page page = pageIterator.next();
-                filePages.add(new FilePage(getPdfPageText(page), page.getPageNumber()));
+            duplicates = findRepetitiveLinesAndPatterns(regions, firstIndex, lastIndex);
+        }
+
+        // After the detection: its workers read the original pages from the source, so the session counts lines on
+        // the pages without form markers too, and the result does not depend on the number of workers
+        if (withForms) {
+            // Markers are only needed where the page or table text is read
+            processFormData(firstIndex, lastIndex, withText || withTables);
+        }
+
+        for (int pageIndex = firstIndex; pageIndex <= lastIndex; pageIndex++) {
+            int pageNumber = pageIndex + 1;
+            StructuredPage structure = newStructuredPage(pageIndex);
+
+            FilePage filePage;
+            if (withText) {
+                // The tabula page for table detection is captured while the page is stripped, cached pages need neither
+                filePage = getPageText(document, pageNumber, duplicates, withTables, structure, withLayout);
+            } else {
+                filePage = new FilePage("", pageNumber);
+                if (withTables) {
+                    for (PdfTable table : extractTablesFromPdfPage(PageCapture.capture(document, pageNumber))) {
+                        addTable(structure, table);
+                    }
+                }
             }
+            if (withForms) {
+                for (FormField field : formData.values()) {
+                    if (field.getPageIndex() == pageIndex) {
+                        structure.getFormValues().add(new StructuredPage.FormValue(field.getName(), field.getX(), field.getY(),
+                                field.getWidth(), field.getHeight(), field.getText()));
+                    }
+                }
+            }
+            listener.onPage(filePage, structure);
         }
 
-        return filePages;
+        if (nearDuplicates != null) {
+            nearDuplicates.add(documentId, duplicates, recordedPages);
+        }
+    }
+
+    // Header/footer detection on the whole document, for the sessions that extract its page ranges in parallel
+    DuplicateLines findDocumentDuplicates() throws IOException {
+        return findRepetitiveLinesAndPatterns(regions, 0, document.getNumberOfPages() - 1);
+    }
+
+    // Page ranges are then cleaned with the repetitive lines of the whole document, as if it were extracted whole
+    void setDocumentDuplicates(DuplicateLines duplicates) {
+        this.documentDuplicates = duplicates;
+    }
+
+    private NearDuplicateIndex.Match findEarlierRevision(NearDuplicateIndex nearDuplicates) {
+        ExtractionEvents.NearDuplicateLookup event = new ExtractionEvents.NearDuplicateLookup();
+        event.begin();
+        NearDuplicateIndex.Match revision = nearDuplicates.findClosest(pageKeys);
+        event.documentId = documentId;
+        if (revision != null) {
+            event.revisionDocumentId = revision.getDocumentId();
+            event.similarity = revision.getSimilarity();
+        }
+        event.commit();
+        return revision;
+    }
+
+    private void processFormData(int firstIndex, int lastIndex, boolean writeMarkers) throws IOException {
+        ExtractionEvents.FormProcessing event = new ExtractionEvents.FormProcessing();
+        event.begin();
+        writeFormData(firstIndex, lastIndex, writeMarkers);
+        event.documentId = documentId;
+        event.fieldCount = formData.size();
+        event.commit();
     }
 
-    private void processFormData() throws IOException {
+    // Fields of the pages in the range; markers are written into the pages when the text is read
+    private void writeFormData(int firstIndex, int lastIndex, boolean writeMarkers) throws IOException {
         PDAcroForm acroForm = document.getDocumentCatalog().getAcroForm();
         if (acroForm == null) return;
         int counter = 1;
 
         for (PDField field : acroForm.getFields()) {
+            int fieldPageIndex = getFieldPageIndex(field);
+            if (fieldPageIndex < firstIndex || fieldPageIndex > lastIndex) continue;
             String uniqueId = String.format("%s%d", FORM_DATA_PREFIX, counter); // Generate the unique ID before processing
             PDRectangle rectangle = field.getWidgets().get(0).getRectangle();
             float yFromTop = mediaBox.getHeight() - rectangle.getUpperRightY();
@@ -134,13 +311,16 @@ public class PdfTextExtractor {
 
             if (field instanceof PDCheckBox) {
                 formData.put(uniqueId, new FormField(
+                        field.getFullyQualifiedName(),
                         rectangle.getLowerLeftX(),
                         yFromTop,
                         rectangle.getWidth(),
                         rectangle.getHeight(),
                         ((PDCheckBox) field).isChecked() ? "[x]" : "[ ]",
-                        getFieldPageIndex(field)));
-                writeFieldInPDF(fontSize, rectangle.getLowerLeftX(), yFromTop, uniqueId, formData.get(uniqueId).pageIndex);
+                        fieldPageIndex));
+                if (writeMarkers) {
+                    writeFieldInPDF(fontSize, rectangle.getLowerLeftX(), yFromTop, uniqueId, formData.get(uniqueId).pageIndex);
+                }
 
             } else if (field instanceof PDRadioButton) {
                 PDRadioButton radioButton = (PDRadioButton) field;
@@ -152,9 +332,11 @@ public class PdfTextExtractor {
                     String displayValue = buttonLabel.equals(selectedValue) ? "(x)" : "( )";
                     PDRectangle widgetRect = widget.getRectangle();
                     float yFromTopw = mediaBox.getHeight() - widgetRect.getUpperRightY();
-                    formData.put(uniqueId, new FormField(widgetRect.getLowerLeftX(), yFromTopw, widgetRect.getWidth(), widgetRect.getHeight(), displayValue, getFieldPageIndex(field)));
+                    formData.put(uniqueId, new FormField(field.getFullyQualifiedName(), widgetRect.getLowerLeftX(), yFromTopw, widgetRect.getWidth(), widgetRect.getHeight(), displayValue, fieldPageIndex));
 
-                    writeFieldInPDF(fontSize, widgetRect.getLowerLeftX(), yFromTopw, uniqueId, formData.get(uniqueId).pageIndex);
+                    if (writeMarkers) {
+                        writeFieldInPDF(fontSize, widgetRect.getLowerLeftX(), yFromTopw, uniqueId, formData.get(uniqueId).pageIndex);
+                    }
                     counter++;
                     uniqueId = String.format("%s%d", FORM_DATA_PREFIX, counter);
                 }
@@ -168,9 +350,11 @@ public class PdfTextExtractor {
 
                 String selectedValue = values.get(index);
 
-                formData.put(uniqueId, new FormField(rectangle.getLowerLeftX(), yFromTop, rectangle.getWidth(), rectangle.getHeight(), selectedValue, getFieldPageIndex(field)));
+                formData.put(uniqueId, new FormField(field.getFullyQualifiedName(), rectangle.getLowerLeftX(), yFromTop, rectangle.getWidth(), rectangle.getHeight(), selectedValue, fieldPageIndex));
 
-                writeFieldInPDF(fontSize, rectangle.getLowerLeftX(), yFromTop, uniqueId, formData.get(uniqueId).pageIndex);
+                if (writeMarkers) {
+                    writeFieldInPDF(fontSize, rectangle.getLowerLeftX(), yFromTop, uniqueId, formData.get(uniqueId).pageIndex);
+                }
 
             } else {
                 if (field instanceof PDTextField) {
@@ -180,8 +364,10 @@ public class PdfTextExtractor {
                     }
                 }
 
-                formData.put(uniqueId, new FormField(rectangle.getLowerLeftX(), yFromTop, rectangle.getWidth(), rectangle.getHeight(), field.getValueAsString(), getFieldPageIndex(field)));
-                writeFieldInPDF(fontSize, rectangle.getLowerLeftX(), yFromTop, uniqueId, formData.get(uniqueId).pageIndex);
+                formData.put(uniqueId, new FormField(field.getFullyQualifiedName(), rectangle.getLowerLeftX(), yFromTop, rectangle.getWidth(), rectangle.getHeight(), field.getValueAsString(), fieldPageIndex));
+                if (writeMarkers) {
+                    writeFieldInPDF(fontSize, rectangle.getLowerLeftX(), yFromTop, uniqueId, formData.get(uniqueId).pageIndex);
+                }
             }
 
             counter++;
@@ -203,7 +389,7 @@ public class PdfTextExtractor {
         // String Example DA: "/F3 10 Tf 0 g"
         if (da == null) return 0.0f;
         try {
-            String[] tokens = da.split("\\s+");
+            String[] tokens = WHITESPACE_PATTERN.split(da);
             for (int i = 0; i < tokens.length; i++) {
                 if ("Tf".equals(tokens[i]) && i > 0) {
                     return Float.parseFloat(tokens[i - 1]);
@@ -241,21 +427,13 @@ public class PdfTextExtractor {
         float lowerLeftX = mediaBox.getLowerLeftX();
         float upperRightX = mediaBox.getUpperRightX();
 
-        RectangleRegion headerRegion = new RectangleRegion(lowerLeftX, lowerLeftY, upperRightX - lowerLeftX, HEADER_AND_FOOTER_HEIGHT, HEADER_REGION);
-        RectangleRegion footerRegion = new RectangleRegion(lowerLeftX, upperRightY - HEADER_AND_FOOTER_HEIGHT, upperRightX - lowerLeftX, HEADER_AND_FOOTER_HEIGHT, FOOTER_REGION);
-        RectangleRegion bodyRegion = new RectangleRegion(lowerLeftX, lowerLeftY + HEADER_AND_FOOTER_HEIGHT, upperRightX - lowerLeftX, upperRightY - lowerLeftY - HEADER_AND_FOOTER_HEIGHT * 2, BODY_REGION);
+        RectangleRegion headerRegion = new RectangleRegion(lowerLeftX, lowerLeftY, upperRightX - lowerLeftX, config.getHeaderAndFooterHeight(), HEADER_REGION);
+        RectangleRegion footerRegion = new RectangleRegion(lowerLeftX, upperRightY - config.getHeaderAndFooterHeight(), upperRightX - lowerLeftX, config.getHeaderAndFooterHeight(), FOOTER_REGION);
+        RectangleRegion bodyRegion = new RectangleRegion(lowerLeftX, lowerLeftY + config.getHeaderAndFooterHeight(), upperRightX - lowerLeftX, upperRightY - lowerLeftY - config.getHeaderAndFooterHeight() * 2, BODY_REGION);
 
         return List.of(footerRegion, headerRegion, bodyRegion);
     }
 
-    @SneakyThrows
-    private String getPdfPageText(Page page) {
-        PDFTextStripper pdfStripper = new PDFTextStripper();
-        pdfStripper.setStartPage(page.getPageNumber());
-        pdfStripper.setEndPage(page.getPageNumber());
-        return pdfStripper.getText(document);
-    }
-
     @SneakyThrows
     private String getPdfPageText(int pageNumber) {
         PDFTextStripper pdfStripper = new PDFTextStripper();
@@ -264,16 +442,74 @@ public class PdfTextExtractor {
         return pdfStripper.getText(document);
     }
 
-    @SneakyThrows
-    private String getPdfPageText(Page page, Map<String, Set<RectangleRegion>> duplicates) {
-        return getPageText(document, page, duplicates);
+    String getPageText(PDDocument document, Page page, DuplicateLines duplicates) throws IOException {
+        return getPageText(document, page.getPageNumber(), duplicates, config.isConvertTableToReadableFormat(), null, false).getText();
+    }
+
+    // Fills the structure (if not null) with the tables and questions of the page, and with its text blocks if withLayout
+    private FilePage getPageText(PDDocument document, int pageNumber, DuplicateLines duplicates, boolean withTables,
+                                 StructuredPage structure, boolean withLayout) throws IOException {
+        ExtractionEvents.PageStrip event = new ExtractionEvents.PageStrip();
+        event.begin();
+        FilePage filePage = stripPage(document, pageNumber, duplicates, withTables, structure, withLayout, event);
+        event.documentId = documentId;
+        event.pageNumber = pageNumber;
+        event.clean = true;
+        event.questionCount = filePage.getQuestions().size();
+        event.characterCount = filePage.getText().length();
+        event.commit();
+        return filePage;
     }
 
-    public String getPageText(PDDocument document, Page page, Map<String, Set<RectangleRegion>> duplicates) throws IOException {
-        List<PdfTable> pageTables = convertTableToReadableFormat ? extractTablesFromPdfPage(page) : new ArrayList<>();
-        boolean[] tableVisit = new boolean[pageTables.size()];
+    private FilePage stripPage(PDDocument document, int pageNumber, DuplicateLines duplicates, boolean withTables,
+                               StructuredPage structure, boolean withLayout, ExtractionEvents.PageStrip event) throws IOException {
+        PageCache pageCache = engine.getPageCache();
+        // Text blocks depend on the repetitive lines of this document, such pages are not cached
+        String key = pageKeys == null || withLayout ? null : pageKeys[pageNumber - 1];
+        PageCache.Entry entry = key != null && reusedPages != null ? reusedPages.get(key) : null;
+        if (entry == null && key != null && pageCache != null) {
+            entry = pageCache.get(key);
+        }
+        event.cacheHit = entry != null;
+        if (entry == null) {
+            entry = recordPage(document, pageNumber, duplicates, withTables, withLayout ? structure : null);
+            if (key != null && pageCache != null) {
+                pageCache.put(key, entry);
+            }
+        }
+        if (key != null && recordedPages != null) {
+            recordedPages.put(key, entry);
+        }
+
+        if (structure != null) {
+            structure.getTables().addAll(entry.getTables());
+            structure.getQuestions().addAll(entry.getQuestions());
+        }
+        event.tableCount = entry.getTableCount();
+        String extractedText = entry.getTape().render((line, regionMask) -> isRemovedLine(duplicates, line, regionMask));
+        return toFilePage(removeExtraEmptyLines(extractedText).trim() + "\n", pageNumber, entry.getQuestions());
+    }
+
+    // Strips the page into a tape that keeps the lines which may be removed as repetitive, so the result
+    // does not depend on the repetitive lines of this document and can be shared through the page cache.
+    // Text blocks are only collected into the layout (if not null).
+    // Tables are detected on the tabula page captured by the same content stream pass, before the text is written.
+    private PageCache.Entry recordPage(PDDocument document, int pageNumber, DuplicateLines duplicates, boolean withTables,
+                                       StructuredPage layout) throws IOException {
+        List<PdfTable> pageTables = new ArrayList<>();
+        List<StructuredPage.TextBlock> lines = new ArrayList<>();
+        List<StructuredPage.Question> writtenQuestions = new ArrayList<>();
+        Set<Integer> visitedTables = new HashSet<>();
+        PageTape tape = new PageTape();
+
+        PageCapture stripper = new PageCapture(pageNumber) {
+            @Override
+            protected void onPageCaptured(Page page) throws IOException {
+                if (withTables) {
+                    pageTables.addAll(extractTablesFromPdfPage(page));
+                }
+            }
 
-        PDFTextStripper stripper = new PDFTextStripper() {
             @Override
             protected void writeString(String string, List<TextPosition> textPositions) throws IOException {
 
@@ -282,31 +518,42 @@ public class PdfTextExtractor {
                     PdfTable table = pageTables.get(i);
                     TextPosition firstTextPosition = textPositions.get(0);
                     if (isInsideTable(firstTextPosition, table)) {
-                        if (!tableVisit[i]) {
+                        if (visitedTables.add(i)) {
+                            if (table.getQuestion() != null) {
+                                writtenQuestions.add(table.getQuestion());
+                            }
                             super.writeString("\n" + table.getText(), textPositions);
-                            tableVisit[i] = true;
                         }
                         return;
                     }
                 }
 
-                Set<RectangleRegion> regions = duplicates.get(string.trim());
-                boolean isWrite = true;
+                // The string is skipped when rendered if it is contained in the area to be deleted
+                String line = string.trim();
+                int regionMask = getRegionMask(textPositions);
+                tape.beginLine(line, regionMask);
+                String text = formData.get(string) != null ? formData.get(string).getText().trim() : string;
+                if (formData.get(string) != null) {
+                    super.writeString(text);
+                } else {
+                    super.writeString(string, textPositions);
+                }
+                tape.endLine();
 
-                // If the string is contained in the area to be deleted, skip it
-                if (regions != null) {
-                    isWrite = textPositions.stream().noneMatch(text ->
-                            regions.stream().anyMatch(region -> region.contains(text.getX(), text.getY()))
-                    );
+                if (layout != null && !text.isBlank() && !isRemovedLine(duplicates, line, regionMask)) {
+                    lines.add(toTextBlock(text, textPositions));
                 }
+            }
 
-                if (isWrite) {
-                    if (formData.get(string) != null) {
-                        super.writeString(formData.get(string).getText().trim());
-                    } else {
-                        super.writeString(string, textPositions);
+            // The glyphs are put into reading order before PDFBox groups them into lines
+            @Override
+            protected void writePage() throws IOException {
+                if (isXyCutReadingOrder()) {
+                    for (List<TextPosition> article : getCharactersByArticle()) {
+                        ReadingOrderLayout.sort(article);
                     }
                 }
+                super.writePage();
             }
 
             private boolean isInsideTable(TextPosition text, PdfTable table) {
@@ -316,17 +563,144 @@ public class PdfTextExtractor {
             }
         };
 
-        stripper.setStartPage(page.getPageNumber());
-        stripper.setEndPage(page.getPageNumber());
-        stripper.setSortByPosition(true);
-        String extractedText = stripper.getText(document);
+        stripper.setSortByPosition(!isXyCutReadingOrder());
+        stripper.writeText(document, tape);
+        tape.close();
+
+        if (layout != null) {
+            layout.getBlocks().addAll(mergeLinesIntoBlocks(lines));
+        }
+        List<StructuredPage.TableGrid> grids = new ArrayList<>();
+        for (PdfTable table : pageTables) {
+            if (table.getQuestion() == null) {
+                grids.add(table.getGrid());
+            }
+        }
+
+        return new PageCache.Entry(tape, writtenQuestions, grids, pageTables.size());
+    }
+
+    // Page size as tabula reports it, width and height are swapped on turned pages
+    private StructuredPage newStructuredPage(int pageIndex) {
+        PDPage pdPage = document.getPage(pageIndex);
+        PDRectangle cropBox = pdPage.getCropBox();
+        int rotation = Math.abs(pdPage.getRotation());
+        boolean turned = rotation == 90 || rotation == 270;
+        return new StructuredPage(pageIndex + 1, turned ? cropBox.getHeight() : cropBox.getWidth(), turned ? cropBox.getWidth() : cropBox.getHeight());
+    }
+
+    private boolean isXyCutReadingOrder() {
+        return ExtractionConfig.XY_CUT_READING_ORDER.equals(config.getReadingOrder());
+    }
+
+    private void addTable(StructuredPage structure, PdfTable table) {
+        if (table.getQuestion() != null) {
+            structure.getQuestions().add(table.getQuestion());
+        } else {
+            structure.getTables().add(table.getGrid());
+        }
+    }
+
+    // Bit i is set if any of the text positions is inside regions[i]
+    private int getRegionMask(List<TextPosition> textPositions) {
+        int regionMask = 0;
+        for (int i = 0; i < regions.size(); i++) {
+            RectangleRegion region = regions.get(i);
+            for (TextPosition text : textPositions) {
+                if (region.contains(text.getX(), text.getY())) {
+                    regionMask |= 1 << i;
+                    break;
+                }
+            }
+        }
+        return regionMask;
+    }
+
+    private boolean isRemovedLine(DuplicateLines duplicates, String line, int regionMask) {
+        Set<RectangleRegion> lineRegions = duplicates.find(line);
+        if (lineRegions == null) return false;
+        for (RectangleRegion region : lineRegions) {
+            int index = regions.indexOf(region);
+            if (index != -1 && (regionMask & (1 << index)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Everything the page result depends on besides the page itself
+    private String getPageCacheVariant(boolean withTables, boolean withForms) throws IOException {
+        return String.join("|", "page-cache-v2", tableExtractor.getName(), config.getReadingOrder(), String.valueOf(isSselDocument()),
+                String.valueOf(withTables), String.valueOf(withForms), String.valueOf(config.isTablesWithHeader()), String.valueOf(mediaBox.getWidth()), String.valueOf(mediaBox.getHeight()),
+                String.valueOf(mediaBox.getLowerLeftX()), String.valueOf(mediaBox.getLowerLeftY()));
+    }
+
+    // Cuts the question markers out of the page text, remembering the offset of every question.
+    // Markers appear in the same order as the questions were written.
+    private FilePage toFilePage(String text, int pageNumber, List<StructuredPage.Question> writtenQuestions) {
+        FilePage filePage = new FilePage(text, pageNumber);
+        if (writtenQuestions.isEmpty()) return filePage;
+
+        StringBuilder result = new StringBuilder(text.length());
+        int from = 0;
+        int marker;
+        int questionIndex = 0;
+        while ((marker = text.indexOf(QUESTION_MARKER, from)) != -1) {
+            result.append(text, from, marker);
+            String number = questionIndex < writtenQuestions.size() ? writtenQuestions.get(questionIndex++).getNumber() : "";
+            filePage.getQuestions().add(new QuestionBoundary(pageNumber, result.length(), number));
+            from = marker + 1;
+        }
+        result.append(text, from, text.length());
+        filePage.setText(result.toString());
+        return filePage;
+    }
+
+    private StructuredPage.TextBlock toTextBlock(String text, List<TextPosition> textPositions) {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (TextPosition position : textPositions) {
+            minX = Math.min(minX, position.getXDirAdj());
+            maxX = Math.max(maxX, position.getXDirAdj() + position.getWidthDirAdj());
+            minY = Math.min(minY, position.getYDirAdj() - position.getHeightDir());
+            maxY = Math.max(maxY, position.getYDirAdj());
+        }
+        if (textPositions.isEmpty()) {
+            minX = minY = maxX = maxY = 0;
+        }
+        return new StructuredPage.TextBlock(minX, minY, maxX - minX, maxY - minY, text);
+    }
+
+    // Consecutive lines that are close vertically and overlap horizontally form one block
+    private List<StructuredPage.TextBlock> mergeLinesIntoBlocks(List<StructuredPage.TextBlock> lines) {
+        List<StructuredPage.TextBlock> blocks = new ArrayList<>();
+        StructuredPage.TextBlock current = null;
+        for (StructuredPage.TextBlock line : lines) {
+            if (current != null && isSameBlock(current, line)) {
+                float minX = Math.min(current.getX(), line.getX());
+                float maxX = Math.max(current.getX() + current.getWidth(), line.getX() + line.getWidth());
+                float maxY = Math.max(current.getY() + current.getHeight(), line.getY() + line.getHeight());
+                current.setText(current.getText() + "\n" + line.getText());
+                current.setX(minX);
+                current.setWidth(maxX - minX);
+                current.setHeight(maxY - current.getY());
+            } else {
+                current = new StructuredPage.TextBlock(line.getX(), line.getY(), line.getWidth(), line.getHeight(), line.getText());
+                blocks.add(current);
+            }
+        }
+        return blocks;
+    }
 
-        return removeExtraEmptyLines(extractedText).trim() + "\n";
+    private boolean isSameBlock(StructuredPage.TextBlock block, StructuredPage.TextBlock line) {
+        float gap = line.getY() - (block.getY() + block.getHeight());
+        boolean overlapsHorizontally = line.getX() < block.getX() + block.getWidth() && block.getX() < line.getX() + line.getWidth();
+        return gap >= -line.getHeight() / 2 && gap < line.getHeight() * BLOCK_LINE_GAP_RATIO && overlapsHorizontally;
     }
 
     @Data
     @AllArgsConstructor
     private static class FormField {
+        private String name;
         private float x;
         private float y;
         private float width;
@@ -335,40 +709,176 @@ public class PdfTextExtractor {
         private int pageIndex;
     }
 
-    private Map<String, Set<RectangleRegion>> findRepetitiveLinesAndPatterns(List<RectangleRegion> regions) throws IOException {
-        Map<String, LineInfo> commonLines = new HashMap<>();
+    // Lines are counted on a window of pages around the range: the whole document when the range covers it,
+    // otherwise at least MIN_DETECTION_WINDOW_PAGES pages, so a preview of a few pages does not read every page
+    private DuplicateLines findRepetitiveLinesAndPatterns(List<RectangleRegion> regions, int firstIndex, int lastIndex) throws IOException {
+        ExtractionEvents.DuplicateDetection event = new ExtractionEvents.DuplicateDetection();
+        event.begin();
+        int totalPages = document.getNumberOfPages();
+        int windowFrom = firstIndex;
+        int windowTo = lastIndex + 1;
+        int missingPages = MIN_DETECTION_WINDOW_PAGES - (windowTo - windowFrom);
+        if (missingPages > 0) {
+            windowFrom = Math.max(0, windowFrom - (missingPages + 1) / 2);
+            windowTo = Math.min(totalPages, windowFrom + MIN_DETECTION_WINDOW_PAGES);
+            windowFrom = Math.max(0, windowTo - MIN_DETECTION_WINDOW_PAGES);
+        }
+        int windowPages = windowTo - windowFrom;
+        boolean sampled = windowPages > config.getSampledDetectionPageThreshold();
+        int[] pageIndexes = sampled ? samplePageIndexes(windowFrom, windowTo) : IntStream.range(windowFrom, windowTo).toArray();
+
+        RepetitiveLineCounts counts = countRepetitiveLines(pageIndexes, regions, sampled);
+        DuplicateLines duplicates = sampled
+                ? findRepetitiveLinesInSample(counts, regions, pageIndexes.length)
+                : new DuplicateLines(findDuplicateSets(counts.lines, windowPages), Collections.emptyMap());
+
+        event.documentId = documentId;
+        event.pageCount = windowPages;
+        event.countedPageCount = pageIndexes.length;
+        event.sampled = sampled;
+        event.workerCount = getDetectionWorkers(pageIndexes.length);
+        event.lineCount = duplicates.lines.size() + duplicates.shapes.size();
+        event.commit();
+        return duplicates;
+    }
 
+    private int getDetectionWorkers(int pageCount) {
+        return source == null ? 1 : Math.max(1, Math.min(config.getDetectionParallelism(), pageCount / MIN_PAGES_PER_DETECTION_WORKER));
+    }
+
+    // Map-reduce over the pages: every worker counts lines of a contiguous slice of pages
+    // on its own document handle, the partial counts are merged in page order
+    private RepetitiveLineCounts countRepetitiveLines(int[] pageIndexes, List<RectangleRegion> regions, boolean sampled) throws IOException {
+        int workers = getDetectionWorkers(pageIndexes.length);
+        if (workers <= 1) {
+            return countRepetitiveLines(document, pageIndexes, 0, pageIndexes.length, regions, sampled);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<RepetitiveLineCounts>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                int from = (int) ((long) i * pageIndexes.length / workers);
+                int to = (int) ((long) (i + 1) * pageIndexes.length / workers);
+                futures.add(pool.submit(() -> {
+                    try (PDDocument handle = source.open()) {
+                        return countRepetitiveLines(handle, pageIndexes, from, to, regions, sampled);
+                    }
+                }));
+            }
+            RepetitiveLineCounts result = null;
+            for (Future<RepetitiveLineCounts> future : futures) {
+                RepetitiveLineCounts partial = getResult(future);
+                result = result == null ? partial : result.merge(partial);
+            }
+            return result;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private RepetitiveLineCounts countRepetitiveLines(PDDocument document, int[] pageIndexes, int from, int to,
+                                                     List<RectangleRegion> regions, boolean sampled) throws IOException {
+        PDFTextStripperByArea stripper = new PDFTextStripperByArea();
         // Add all regions to the PDFTextStripperByArea
         for (RectangleRegion region: regions) {
-            stripperByArea.addRegion(region.getRegionStr(), region);
+            stripper.addRegion(region.getRegionStr(), region);
         }
+        RepetitiveLineCounts counts = new RepetitiveLineCounts(sampled);
         // Extract lines from each region
-        for (int i = 1; i <= document.getNumberOfPages(); i++) {
-            stripperByArea.extractRegions(document.getPage(i - 1));
-            List<Pair<String, RectangleRegion>> allLines = new ArrayList<>();
-            for (RectangleRegion region: regions) {
-                String text = stripperByArea.getTextForRegion(region.getRegionStr());
-                for (String line: text.split("\r?\n")) {
-                    if (region.getRegionStr().equals(BODY_REGION)) {
-                        if (isExtraBodyLinesContainsSimilarLine(line)) {
-                            allLines.add(new Pair<>(line.trim(), region));
-                        }
-                    } else {
+        for (int i = from; i < to; i++) {
+            for (Pair<String, RectangleRegion> line : extractRegionLines(document, stripper, pageIndexes[i], regions)) {
+                counts.add(line.getFirst(), line.getSecond());
+            }
+        }
+        return counts;
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while detecting repetitive lines");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Repetitive lines detection failed", e.getCause());
+        }
+    }
+
+    // Lines were counted only on a stratified sample of pages with bounded memory. Lines that differ only in digits
+    // (page numbers, dates) are also counted by their shape, so variants from pages outside the sample are removed too.
+    private DuplicateLines findRepetitiveLinesInSample(RepetitiveLineCounts counts, List<RectangleRegion> regions, int sampledPages) {
+        Map<String, RectangleRegion> regionsByName = new HashMap<>();
+        for (RectangleRegion region : regions) {
+            regionsByName.put(region.getRegionStr(), region);
+        }
+
+        Map<String, LineInfo> commonLines = new HashMap<>();
+        for (LineFrequencySketch.Candidate candidate : counts.lineSketch.getCandidates()) {
+            commonLines.put(candidate.getLine(), new LineInfo(toRegions(candidate.getRegions(), regionsByName), candidate.getCount()));
+        }
+
+        Map<String, Set<RectangleRegion>> shapesToRemove = new HashMap<>();
+        for (LineFrequencySketch.Candidate candidate : counts.shapeSketch.getCandidates()) {
+            String shape = candidate.getLine();
+            if (!shape.contains(DIGITS_PLACEHOLDER)) continue;
+            LineInfo lineInfo = new LineInfo(toRegions(candidate.getRegions(), regionsByName), candidate.getCount());
+            if ((float) lineInfo.getCount() / sampledPages >= config.getFrequencyThreshold()
+                    || (shape.equals(DIGITS_PLACEHOLDER) && !isLineOnBodyRegion(lineInfo))) { // Page numbers in footer and header regions
+                shapesToRemove.put(shape, lineInfo.getRegions());
+            }
+        }
+
+        return new DuplicateLines(findDuplicateSets(commonLines, sampledPages), shapesToRemove);
+    }
+
+    private List<Pair<String, RectangleRegion>> extractRegionLines(PDDocument document, PDFTextStripperByArea stripperByArea,
+                                                                   int pageIndex, List<RectangleRegion> regions) throws IOException {
+        stripperByArea.extractRegions(document.getPage(pageIndex));
+        List<Pair<String, RectangleRegion>> allLines = new ArrayList<>();
+        for (RectangleRegion region: regions) {
+            String text = stripperByArea.getTextForRegion(region.getRegionStr());
+            for (String line: LINE_BREAK_PATTERN.split(text)) {
+                if (region.getRegionStr().equals(BODY_REGION)) {
+                    if (isExtraBodyLinesContainsSimilarLine(line)) {
                         allLines.add(new Pair<>(line.trim(), region));
                     }
+                } else {
+                    allLines.add(new Pair<>(line.trim(), region));
                 }
             }
+        }
+        return allLines;
+    }
 
-            // Grouping identical rows by counts and regions
-            for (Pair<String, RectangleRegion> line : allLines) {
-                String cleanedLine = line.getFirst();
-                commonLines.computeIfAbsent(cleanedLine, k -> new LineInfo(new HashSet<>(), 0))
-                        .addRegion(line.getSecond());
-                commonLines.get(cleanedLine).incrementCount();
-            }
+    // One random page from each of the equally sized strata, so that every part of the document is represented
+    private int[] samplePageIndexes(int fromIndex, int toIndex) {
+        int totalPages = toIndex - fromIndex;
+        double n0 = SAMPLING_Z_SCORE * SAMPLING_Z_SCORE * 0.25 / (SAMPLING_MARGIN_OF_ERROR * SAMPLING_MARGIN_OF_ERROR);
+        int sampleSize = (int) Math.min(totalPages, Math.ceil(n0 / (1 + (n0 - 1) / totalPages)));
+        Random random = new Random(totalPages);
+        int[] pageIndexes = new int[sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            int from = (int) ((long) i * totalPages / sampleSize);
+            int to = (int) ((long) (i + 1) * totalPages / sampleSize);
+            pageIndexes[i] = fromIndex + from + random.nextInt(Math.max(1, to - from));
         }
+        return pageIndexes;
+    }
 
-        return findDuplicateSets(commonLines, document.getNumberOfPages());
+    private static String toLineShape(String line) {
+        return DIGITS_PATTERN.matcher(line).replaceAll(DIGITS_PLACEHOLDER);
+    }
+
+    private Set<RectangleRegion> toRegions(Set<String> regionNames, Map<String, RectangleRegion> regionsByName) {
+        Set<RectangleRegion> result = new HashSet<>();
+        for (String regionName : regionNames) {
+            result.add(regionsByName.get(regionName));
+        }
+        return result;
     }
 
     private Map<String, Set<RectangleRegion>> findDuplicateSets(Map<String, LineInfo> lineCounts, int totalPages) {
@@ -379,9 +889,9 @@ public class PdfTextExtractor {
         for (int i = 0; i < lines.size(); i++) {
             String line = lines.get(i);
             LineInfo lineInfo = lineCounts.get(line);
-            if ((float) lineInfo.getCount() / totalPages >= FREQUENCY_THRESHOLD // Frequently occurring lines
+            if ((float) lineInfo.getCount() / totalPages >= config.getFrequencyThreshold() // Frequently occurring lines
                     || (StringUtils.isNumeric(line) && !isLineOnBodyRegion(lineInfo)) // Page numbers in footer and header regions
-                    || (isLineOnBodyRegion(lineInfo) && isExtraBodyLinesContainsSimilarLine(line)) // The most similar lines to POTENTIAL_EXTRA_BODY_LINES
+                    || (isLineOnBodyRegion(lineInfo) && isExtraBodyLinesContainsSimilarLine(line)) // The most similar lines to the boilerplate phrases
             ) {
                 linesToRemove.put(line, lineInfo.getRegions());
                 continue;
@@ -394,12 +904,12 @@ public class PdfTextExtractor {
             for (int j = i + 1; j < lines.size(); j++) {
                 String otherPattern = lines.get(j);
                 LineInfo lineInfo1 = lineCounts.get(otherPattern);
-                if (levenshteinDistance.getDistance(line, otherPattern) >= SIMILARITY_THRESHOLD) {
+                if (levenshteinDistance.getDistance(line, otherPattern) >= config.getSimilarityThreshold()) {
                     patterns.put(otherPattern, lineInfo1.getRegions());
                     patternCount += lineInfo1.getCount();
                 }
             }
-            if ((float) patternCount / totalPages > FREQUENCY_THRESHOLD) {
+            if ((float) patternCount / totalPages > config.getFrequencyThreshold()) {
                 linesToRemove.putAll(patterns);
             }
 
@@ -409,110 +919,133 @@ public class PdfTextExtractor {
     }
 
     private List<PdfTable> extractTablesFromPdfPage(Page page) throws IOException {
-        List<Table> tables = (List<Table>) tableExtractionAlgorithm.extract(page);
-        List<PdfTable> pdfTables = new ArrayList<>();
+        ExtractionEvents.TableDetection detectionEvent = new ExtractionEvents.TableDetection();
+        detectionEvent.begin();
+        List<StructuredPage.TableGrid> tables = tableExtractor.extract(document, page);
+        detectionEvent.documentId = documentId;
+        detectionEvent.pageNumber = page.getPageNumber();
+        detectionEvent.backend = tableExtractor.getName();
+        detectionEvent.tableCount = tables.size();
+        detectionEvent.commit();
 
-        for (Table table : tables) {
-            // Skip invalid tables
-            if (isSselDocument && isQuestionTable(table)) {
-                pdfTables.add(selectQuestion(table));
-                continue;
-            }
-            if (!isValidTable(table)) {
-                continue;
+        List<PdfTable> pdfTables = new ArrayList<>();
+        for (StructuredPage.TableGrid table : tables) {
+            ExtractionEvents.TableExtraction event = new ExtractionEvents.TableExtraction();
+            event.begin();
+            PdfTable pdfTable = extractTable(table, page);
+            if (pdfTable != null) {
+                pdfTables.add(pdfTable);
             }
+            event.documentId = documentId;
+            event.pageNumber = page.getPageNumber();
+            event.rowCount = table.getRows().size();
+            event.columnCount = table.getColumnCount();
+            event.question = pdfTable != null && pdfTable.getQuestion() != null;
+            event.commit();
+        }
 
-            // Clean up the table (remove empty columns)
-            List<List<RectangularTextContainer>> rows = cleanTable(table);
-            if (rows.isEmpty()) continue;
+        return pdfTables;
+    }
 
-            PdfTable pdfTable = new PdfTable(
-                    (float) table.getX(),
-                    (float) table.getY(),
-                    (float) (table.getX() + table.getWidth()),
-                    (float) (table.getY() + table.getHeight())
-            );
+    // Readable text of the table, null for invalid and empty tables
+    private PdfTable extractTable(StructuredPage.TableGrid table, Page page) throws IOException {
+        // Skip invalid tables
+        if (isSselDocument() && isQuestionTable(table)) {
+            return selectQuestion(table);
+        }
+        if (!isValidTable(table)) {
+            return null;
+        }
 
-            List<String> tableFormDatas = new ArrayList<>();
+        // Clean up the table (remove empty columns)
+        List<List<StructuredPage.TableCell>> rows = cleanTable(table);
+        if (rows.isEmpty()) return null;
 
-            StringBuilder tableStr = new StringBuilder();
-            boolean isFirstRow = true;
+        PdfTable pdfTable = new PdfTable(
+                table.getX(),
+                table.getY(),
+                table.getX() + table.getWidth(),
+                table.getY() + table.getHeight()
+        );
 
-            for (List<RectangularTextContainer> row : rows) {
-                if (row.isEmpty() || isRowTextEmpty(row)) continue;
-                appendRowToTableString(tableStr, row, page, tableFormDatas, !isSselDocument || row.size() != 1);
-                if (isFirstRow) {
-                    if (tablesWithHeader) {
-                        appendHeaderSeparator(tableStr, row.size());
-                    }
-                    isFirstRow = false;
+        List<String> tableFormDatas = new ArrayList<>();
+        pdfTable.setGrid(new StructuredPage.TableGrid(table.getX(), table.getY(), table.getWidth(), table.getHeight()));
+
+        StringBuilder tableStr = new StringBuilder();
+        boolean isFirstRow = true;
+
+        for (List<StructuredPage.TableCell> row : rows) {
+            if (row.isEmpty() || isRowTextEmpty(row)) continue;
+            List<StructuredPage.TableCell> gridRow = new ArrayList<>();
+            appendRowToTableString(tableStr, row, page, tableFormDatas, !isSselDocument() || row.size() != 1, gridRow);
+            pdfTable.getGrid().getRows().add(gridRow);
+            if (isFirstRow) {
+                if (config.isTablesWithHeader()) {
+                    appendHeaderSeparator(tableStr, row.size());
                 }
+                isFirstRow = false;
             }
-
-            pdfTable.setText(tableStr.toString());
-            pdfTables.add(pdfTable);
         }
 
-        return pdfTables;
+        pdfTable.setText(tableStr.toString());
+        return pdfTable;
     }
 
-    private PdfTable selectQuestion(Table table) {
+    private PdfTable selectQuestion(StructuredPage.TableGrid table) {
         PdfTable pdfTable = new PdfTable(
-                (float) table.getX(),
-                (float) table.getY(),
-                (float) (table.getX() + table.getWidth()),
-                (float) (table.getY() + table.getHeight())
+                table.getX(),
+                table.getY(),
+                table.getX() + table.getWidth(),
+                table.getY() + table.getHeight()
         );
 
-        pdfTable.setText(QUESTION_START_PREFIX + table.getRows().get(0).get(0).getText());
+        String questionText = table.getRows().get(0).get(0).getText();
+        pdfTable.setText(QUESTION_MARKER + questionText);
+        Matcher matcher = QUESTION_NUMBER_PATTERN.matcher(questionText);
+        pdfTable.setQuestion(new StructuredPage.Question(matcher.find() ? matcher.group(1) : "",
+                table.getX(), table.getY(), table.getWidth(), table.getHeight(), questionText));
 
         return pdfTable;
     }
 
-    private boolean isQuestionTable(Table table) {
+    private boolean isQuestionTable(StructuredPage.TableGrid table) {
         return table != null && table.getRows().size() == 1 && table.getRows().get(0).size() == 1 && isQuestionFormat(table.getRows().get(0).get(0).getText());
     }
 
     private boolean isQuestionFormat(String text) {
-        // Example: 1.4.3 Question1?
-        String regex = "^\\d+(\\.\\d+)*\\s\\w+";
-        Pattern pattern = Pattern.compile(regex);
-        return pattern.matcher(text).find();
+        return QUESTION_FORMAT_PATTERN.matcher(text).find();
     }
 
-    private boolean isCheckBoxAnswer(String text) {
-        String regex = "^(\\[\\s+\\]|\\[x\\])\\s.*";
-        return text.matches(regex);
+    private static boolean isCheckBoxAnswer(String text) {
+        return CHECK_BOX_ANSWER_PATTERN.matcher(text).matches();
     }
 
-    private boolean isRadioButtonAnswer(String text) {
-        String regex = "^(\\(\\s+\\)|\\(o\\))\\s.*";
-        return text.matches(regex);
+    private static boolean isRadioButtonAnswer(String text) {
+        return RADIO_BUTTON_ANSWER_PATTERN.matcher(text).matches();
     }
 
-    private boolean isCheckBoxSelected(String text) {
-        String regex = "^\\[x\\]\\s.*";
-        return text.matches(regex);
+    private static boolean isCheckBoxSelected(String text) {
+        return CHECK_BOX_SELECTED_PATTERN.matcher(text).matches();
     }
 
     private boolean isRadioButtonSelected(String text) {
-        String regex = "^\\(o\\)\\s.*";
-        return text.matches(regex);
+        return RADIO_BUTTON_SELECTED_PATTERN.matcher(text).matches();
     }
 
     private void appendRowToTableString(
             StringBuilder tableStr,
-            List<RectangularTextContainer> row,
+            List<StructuredPage.TableCell> row,
             Page page,
             List<String> tableFormDatas,
-            boolean useSeparator) throws IOException {
-        for (RectangularTextContainer cell : row) {
+            boolean useSeparator,
+            List<StructuredPage.TableCell> gridRow) throws IOException {
+        for (StructuredPage.TableCell cell : row) {
             List<String> formKeys = getFormKeysInsideCell(cell, page.getPageNumber());
-            String cellText = getTextByTextArea(cell, page).trim().replaceAll("\\r?\\n", " ");
+            String cellText = LINE_BREAK_PATTERN.matcher(getTextByTextArea(cell, page).trim()).replaceAll(" ");
             if (!formKeys.isEmpty()) {
                 for (String key: formKeys) {
                     tableFormDatas.add(key);
-                    cellText = cellText.replace(key, formData.get(key).getText().trim().replaceAll("\\r?\\n", " "));
+                    cellText = cellText.replace(key, LINE_BREAK_PATTERN.matcher(formData.get(key).getText().trim()).replaceAll(" "));
                 }
             } else {
                 for (String key: tableFormDatas) {
@@ -520,25 +1053,8 @@ public class PdfTextExtractor {
                         cellText = cellText.replace(key, "");
                     }
                 }
-                if(isCheckBoxAnswer(cellText)) {
-                    if (!isCheckBoxSelected(cellText)) {
-                        continue;
-                    }
-                } else if (isRadioButtonAnswer(cellText)) {
-                    String answer = extractRadioButtonAnswer(cellText);
-                    if (answer == null) {
-                        cellText = "";
-                    } else {
-                        cellText = answer;
-                    }
-                }
-            }
-            if (useSeparator) {
-                tableStr.append("| ").append(cellText).append(" ");
-            } else {
-                tableStr.append(cellText).append(" ");
             }
-
+            appendCell(tableStr, gridRow, cell, cellText, formKeys.isEmpty(), useSeparator);
         }
         if (useSeparator) {
             tableStr.append("|\n");
@@ -548,9 +1064,37 @@ public class PdfTextExtractor {
 
     }
 
-    private String extractRadioButtonAnswer(String cellText) {
-        Pattern pattern = Pattern.compile("\\(o\\)\\s[^()]+");
-        Matcher matcher = pattern.matcher(cellText);
+    // Check box and radio button answers are reduced to the selected ones. An unselected check box is left out
+    // of the table text, but the grid keeps it as an empty cell, so grid rows stay aligned with the columns.
+    static void appendCell(StringBuilder tableStr, List<StructuredPage.TableCell> gridRow, StructuredPage.TableCell cell,
+                           String cellText, boolean withAnswers, boolean useSeparator) {
+        boolean omitted = false;
+        if (withAnswers) {
+            if (isCheckBoxAnswer(cellText)) {
+                omitted = !isCheckBoxSelected(cellText);
+                if (omitted) {
+                    cellText = "";
+                }
+            } else if (isRadioButtonAnswer(cellText)) {
+                String answer = extractRadioButtonAnswer(cellText);
+                if (answer == null) {
+                    cellText = "";
+                } else {
+                    cellText = answer;
+                }
+            }
+        }
+        gridRow.add(new StructuredPage.TableCell(cell.getX(), cell.getY(), cell.getWidth(), cell.getHeight(), cellText));
+        if (omitted) return;
+        if (useSeparator) {
+            tableStr.append("| ").append(cellText).append(" ");
+        } else {
+            tableStr.append(cellText).append(" ");
+        }
+    }
+
+    private static String extractRadioButtonAnswer(String cellText) {
+        Matcher matcher = RADIO_BUTTON_SELECTED_ANSWER_PATTERN.matcher(cellText);
 
         if(matcher.find()) {
             return matcher.group().trim();
@@ -559,7 +1103,7 @@ public class PdfTextExtractor {
         return null;
     }
 
-    private List<String> getFormKeysInsideCell(RectangularTextContainer cell, int pageNumber) {
+    private List<String> getFormKeysInsideCell(StructuredPage.TableCell cell, int pageNumber) {
 
         List<String> keys = new ArrayList<>();
         for (String key: formData.keySet()) {
@@ -574,28 +1118,35 @@ public class PdfTextExtractor {
         return keys;
     }
 
-    private boolean isRowTextEmpty(List<RectangularTextContainer> row) {
+    private boolean isRowTextEmpty(List<StructuredPage.TableCell> row) {
         return row.stream().allMatch(cell -> cell.getText().isEmpty());
     }
 
-    private String getTextByTextArea(RectangularTextContainer cell, Page page) throws IOException {
+    private String getTextByTextArea(StructuredPage.TableCell cell, Page page) throws IOException {
+        ExtractionEvents.CellRegionExtraction event = new ExtractionEvents.CellRegionExtraction();
+        event.begin();
         final String regionName = "cellRegion";
-        RectangleRegion cellRegion = new RectangleRegion(cell.x, cell.y, cell.width, cell.height, regionName);
+        RectangleRegion cellRegion = new RectangleRegion(cell.getX(), cell.getY(), cell.getWidth(), cell.getHeight(), regionName);
         stripperByArea.addRegion(regionName, cellRegion);
 
         stripperByArea.extractRegions(document.getPage(page.getPageNumber() - 1));
-        return stripperByArea.getTextForRegion(regionName);
+        String text = stripperByArea.getTextForRegion(regionName);
+        event.documentId = documentId;
+        event.pageNumber = page.getPageNumber();
+        event.characterCount = text.length();
+        event.commit();
+        return text;
     }
 
     // Remove empty cells
-    private List<RectangularTextContainer> cleanRow(List<RectangularTextContainer> cells) {
-        return cells.stream().filter(cell -> !cell.getText().trim().isEmpty() && cell instanceof Cell)
+    private List<StructuredPage.TableCell> cleanRow(List<StructuredPage.TableCell> cells) {
+        return cells.stream().filter(cell -> !cell.getText().trim().isEmpty())
                 .collect(Collectors.toList());
     }
 
     // Remove empty columns
-    private List<List<RectangularTextContainer>> cleanTable(Table table) {
-        List<List<RectangularTextContainer>> rows = new ArrayList<>();
+    private List<List<StructuredPage.TableCell>> cleanTable(StructuredPage.TableGrid table) {
+        List<List<StructuredPage.TableCell>> rows = new ArrayList<>();
         boolean[] columnsToDelete = new boolean[getMaxRowSize(table.getRows())];
         for (int i = table.getRows().size() - 1; i >= 0; i--) {
             if (table.getRows().get(i).isEmpty()) {
@@ -603,8 +1154,8 @@ public class PdfTextExtractor {
             }
         }
         for (int j = 0; j < table.getRows().size(); j++) {
-            List<RectangularTextContainer> currentRow = table.getRows().get(j);
-            List<RectangularTextContainer> row = new ArrayList<>();
+            List<StructuredPage.TableCell> currentRow = table.getRows().get(j);
+            List<StructuredPage.TableCell> row = new ArrayList<>();
             for (int i = 0; i < columnsToDelete.length; i++) {
                 if (!columnsToDelete[i]) {
                     row.add(currentRow.get(i));
@@ -619,23 +1170,23 @@ public class PdfTextExtractor {
         return line.getRegions().stream().allMatch(r -> r.getRegionStr().equals(BODY_REGION));
     }
 
-    private int getMaxRowSize(List<List<RectangularTextContainer>> rows) {
+    private int getMaxRowSize(List<List<StructuredPage.TableCell>> rows) {
         return rows.stream().mapToInt(List::size).max().orElse(0);
     }
 
     private String removeExtraEmptyLines(String text) {
-        return text.replaceAll("(\r\n){2,}", "\r\n");
+        return EXTRA_EMPTY_LINES_PATTERN.matcher(text).replaceAll("\r\n");
     }
 
     private boolean isExtraBodyLinesContainsSimilarLine(String line) {
-        return POTENTIAL_EXTRA_BODY_LINES.stream().anyMatch(ll -> levenshteinDistance.getDistance(ll, line.trim()) >= SIMILARITY_THRESHOLD);
+        return engine.getBoilerplateMatcher().matches(line);
     }
 
     private void appendHeaderSeparator(StringBuilder tableStr, int columnCount) {
         tableStr.append("|---".repeat(columnCount)).append("|\n");
     }
 
-    private boolean isValidTable(Table table) {
+    private boolean isValidTable(StructuredPage.TableGrid table) {
         if (table.getRows().size() <= 1) {
             return false;
         }
@@ -657,6 +1208,62 @@ public class PdfTextExtractor {
 
     }
 
+    // Mergeable line counts of a part of the document: exact counts, or sketches in sampled mode
+    private static class RepetitiveLineCounts {
+        private final Map<String, LineInfo> lines = new LinkedHashMap<>();
+        private final LineFrequencySketch lineSketch;
+        private final LineFrequencySketch shapeSketch;
+
+        RepetitiveLineCounts(boolean sampled) {
+            this.lineSketch = sampled ? new LineFrequencySketch(HEAVY_HITTERS_CAPACITY) : null;
+            this.shapeSketch = sampled ? new LineFrequencySketch(HEAVY_HITTERS_CAPACITY) : null;
+        }
+
+        void add(String line, RectangleRegion region) {
+            if (lineSketch != null) {
+                lineSketch.add(line, region.getRegionStr());
+                shapeSketch.add(toLineShape(line), region.getRegionStr());
+                return;
+            }
+            // Grouping identical rows by counts and regions
+            LineInfo lineInfo = lines.computeIfAbsent(line, k -> new LineInfo(new HashSet<>(), 0));
+            lineInfo.addRegion(region);
+            lineInfo.incrementCount();
+        }
+
+        RepetitiveLineCounts merge(RepetitiveLineCounts other) {
+            if (lineSketch != null) {
+                lineSketch.merge(other.lineSketch);
+                shapeSketch.merge(other.shapeSketch);
+                return this;
+            }
+            for (Map.Entry<String, LineInfo> entry : other.lines.entrySet()) {
+                LineInfo lineInfo = lines.get(entry.getKey());
+                if (lineInfo == null) {
+                    lines.put(entry.getKey(), entry.getValue());
+                } else {
+                    lineInfo.merge(entry.getValue());
+                }
+            }
+            return this;
+        }
+    }
+
+    @AllArgsConstructor
+    static class DuplicateLines {
+        private final Map<String, Set<RectangleRegion>> lines;
+        // Digit-normalized line shapes, filled only by the sampled detection
+        private final Map<String, Set<RectangleRegion>> shapes;
+
+        public Set<RectangleRegion> find(String line) {
+            Set<RectangleRegion> regions = lines.get(line);
+            if (regions == null && !shapes.isEmpty()) {
+                regions = shapes.get(toLineShape(line));
+            }
+            return regions;
+        }
+    }
+
     @Getter
     @Setter
     @AllArgsConstructor
@@ -670,6 +1277,10 @@ public class PdfTextExtractor {
         public void incrementCount() {
             this.count++;
         }
+        public void merge(LineInfo other) {
+            this.regions.addAll(other.regions);
+            this.count += other.count;
+        }
     }
 
     @Getter
@@ -680,6 +1291,8 @@ public class PdfTextExtractor {
         private float endX;
         private float endY;
         private String text;
+        private StructuredPage.TableGrid grid;
+        private StructuredPage.Question question;
 
         public PdfTable(float startX, float startY, float endX, float endY) {
             this.startX = startX;
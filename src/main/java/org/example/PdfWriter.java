@@ -6,10 +6,9 @@ import lombok.NoArgsConstructor;
 import org.apache.pdfbox.cos.COSDictionary;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.regex.Pattern;
 
 public class PdfWriter {
     public static void main(String[] args) throws IOException {
@@ -24,17 +23,14 @@ public class PdfWriter {
         if (fileName == null) {
             long start = System.currentTimeMillis();
             for (String file : files) {
-                PDDocument document = PDDocument.load(new File("./test/" + file));
                 File outputFile = new File("./output/" + file.replaceAll(".pdf", ".md"));
-                try (FileWriter writer = new FileWriter(outputFile)) {
+                try (PDDocument document = PDDocument.load(new File("./test/" + file));
+                     PageSink sink = new AsyncPageSink(OutputSinks.create("md", outputFile.toPath()))) {
 
                     PdfTextExtractor pdfExtractor = new PdfTextExtractor(document);
+                    pdfExtractor.setSource(PdfSource.of(new File("./test/" + file)));
                     testMap.put(file, pdfExtractor.isSselDocument());
-                    List<FilePage> pages = pdfExtractor.extract(true);
-                    for (FilePage page : pages) {
-                        writer.write(page.getText());
-                    }
-                    document.close();
+                    pdfExtractor.extract(true, sink::writePage);
                 } catch (IOException e) {
                     e.printStackTrace();
                 }
@@ -43,20 +39,22 @@ public class PdfWriter {
             System.out.println(fileName + "processed. Executed time: " + (double)(end - start)/1000 + "s");
             System.out.println(testMap);
         } else {
-            PDDocument document = PDDocument.load(new File("./test/" + fileName));
-
 //            test(document);
             File outputFile = new File("./output1/" + fileName.replaceAll(".pdf", ".md"));
-            try(FileWriter writer = new FileWriter(outputFile)) {
+            try(PDDocument document = PDDocument.load(new File("./test/" + fileName));
+                PageSink sink = new AsyncPageSink(OutputSinks.create("md", outputFile.toPath()))) {
                 PdfTextExtractor pdfExtractor = new PdfTextExtractor(document);
+                pdfExtractor.setSource(PdfSource.of(new File("./test/" + fileName)));
                 long start = System.currentTimeMillis();
-                List<FilePage> pages  = pdfExtractor.extract(true);
-                List<FileChunk> chunks = splitSselDocumentToChunks(pages, pdfExtractor.getQuestionStartPrefix());
+                List<FileChunk> chunks = new ArrayList<>();
+                ChunkSplitter splitter = new ChunkSplitter(chunks::add);
+                pdfExtractor.extract(true, page -> {
+                    sink.writePage(page);
+                    splitter.accept(page);
+                });
+                splitter.finish();
                 long end = System.currentTimeMillis();
                 System.out.println(fileName + "processed. Executed time: " + (double)(end - start)/1000 + "s");
-                for (FilePage page: pages) {
-                    writer.write(page.getText());
-                }
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -64,38 +62,63 @@ public class PdfWriter {
 
     }
 
-    public static List<FileChunk> splitSselDocumentToChunks(List<FilePage> filePages, String questionStartPrefix) {
+    public static List<FileChunk> splitSselDocumentToChunks(List<FilePage> filePages) {
         List<FileChunk> chunks = new ArrayList<>();
-        StringBuilder currentChunk = new StringBuilder();
-        int chunkStartPageNumber = -1;
+        ChunkSplitter splitter = new ChunkSplitter(chunks::add);
+        try {
+            for (FilePage page : filePages) {
+                splitter.accept(page);
+            }
+            splitter.finish();
+        } catch (IOException e) {
+            // Adding to a list does not throw
+            throw new UncheckedIOException(e);
+        }
+        return chunks;
+    }
+
+    @FunctionalInterface
+    public interface ChunkListener {
+        void onChunk(FileChunk chunk) throws IOException;
+    }
+
+    // Streaming version of splitSselDocumentToChunks: accepts pages one by one and emits every chunk once it is complete.
+    // Pages are cut at the question boundaries recorded by the extractor, the text itself is not searched.
+    public static class ChunkSplitter {
+        private final ChunkListener listener;
+        private final StringBuilder currentChunk = new StringBuilder();
+        private int chunkStartPageNumber = -1;
+        private String chunkQuestionNumber;
 
-        for (FilePage page : filePages) {
-            String[] parts = page.getText().split(Pattern.quote(questionStartPrefix));
+        public ChunkSplitter(ChunkListener listener) {
+            this.listener = listener;
+        }
 
-            for (int i = 0; i < parts.length; i++) {
-                if (i == 0) {
-                    if (currentChunk.length() > 0) {
-                        currentChunk.append(parts[i]);
-                    } else {
-                        currentChunk.append(parts[i]);
-                        chunkStartPageNumber = page.getPageNumber();
-                    }
-                } else {
-                    if (chunkStartPageNumber != 1) {
-                        chunks.add(new FileChunk(currentChunk.toString().trim(), chunkStartPageNumber));
-                    }
-                    currentChunk.setLength(0);
-                    currentChunk.append(parts[i]);
-                    chunkStartPageNumber = page.getPageNumber();
+        public void accept(FilePage page) throws IOException {
+            String text = page.getText();
+            if (currentChunk.length() == 0) {
+                chunkStartPageNumber = page.getPageNumber();
+            }
+            int start = 0;
+            for (QuestionBoundary question : page.getQuestions()) {
+                currentChunk.append(text, start, question.getOffset());
+                if (chunkStartPageNumber != 1) {
+                    listener.onChunk(new FileChunk(currentChunk.toString().trim(), chunkStartPageNumber, chunkQuestionNumber));
                 }
+                currentChunk.setLength(0);
+                chunkStartPageNumber = page.getPageNumber();
+                chunkQuestionNumber = question.getNumber();
+                start = question.getOffset();
             }
+            currentChunk.append(text, start, text.length());
         }
 
-        if (currentChunk.length() > 0) {
-            chunks.add(new FileChunk(currentChunk.toString().trim(), chunkStartPageNumber));
+        public void finish() throws IOException {
+            if (currentChunk.length() > 0) {
+                listener.onChunk(new FileChunk(currentChunk.toString().trim(), chunkStartPageNumber, chunkQuestionNumber));
+                currentChunk.setLength(0);
+            }
         }
-
-        return chunks;
     }
 
     @Data
@@ -104,5 +127,7 @@ public class PdfWriter {
     public static class FileChunk {
         private String text;
         private int pageNumber;
+        // Null for the text before the first question
+        private String questionNumber;
     }
 }
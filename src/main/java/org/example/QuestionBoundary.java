@@ -0,0 +1,16 @@
+package org.example;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Start of an SSEL question in the extracted text: offset is the index in the text of the page
+// where the question text begins, number is the "1.4.3" part of the question (empty if absent)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class QuestionBoundary {
+    private int pageNumber;
+    private int offset;
+    private String number;
+}
@@ -0,0 +1,217 @@
+package org.example;
+
+import org.apache.pdfbox.text.TextPosition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Reading order of the glyphs of a page by recursive XY-cut, an alternative to PDFTextStripper.setSortByPosition.
+// Every level projects the glyph boxes onto one axis with a coverage histogram (linear in the glyphs and the page
+// size) and cuts at the empty runs: first into columns at wide vertical gutters, then into sections at blank
+// horizontal bands, and the remaining glyphs are grouped into lines by baseline. Columns are only cut if their
+// lines do not share baselines, so form rows ("Label   Value") and tables keep the row order of today's output.
+final class ReadingOrderLayout {
+
+    // Gaps relative to the median glyph height of the page
+    private static final float SECTION_GAP_RATIO = 1.0f;
+    private static final float COLUMN_GAP_RATIO = 1.5f;
+    private static final float BASELINE_TOLERANCE_RATIO = 0.5f;
+    private static final int MIN_COLUMN_LINES = 3;
+    // Columns with more common baselines than this share are rows of a form or a table
+    private static final float ALIGNED_LINES_RATIO = 0.5f;
+    // Glyphs far outside the page are not cut, the histogram stays small
+    private static final int MAX_HISTOGRAM_SIZE = 1 << 16;
+
+    private final List<TextPosition> positions;
+    private final float[] left;
+    private final float[] right;
+    private final float[] top;
+    private final float[] baseline;
+    private final float sectionGap;
+    private final float columnGap;
+    private final float baselineTolerance;
+    private final List<TextPosition> ordered;
+
+    private ReadingOrderLayout(List<TextPosition> positions) {
+        int size = positions.size();
+        this.positions = positions;
+        this.left = new float[size];
+        this.right = new float[size];
+        this.top = new float[size];
+        this.baseline = new float[size];
+        float[] heights = new float[size];
+        for (int i = 0; i < size; i++) {
+            TextPosition position = positions.get(i);
+            left[i] = position.getXDirAdj();
+            right[i] = left[i] + Math.max(0, position.getWidthDirAdj());
+            baseline[i] = position.getYDirAdj();
+            heights[i] = Math.max(0, position.getHeightDir());
+            top[i] = baseline[i] - heights[i];
+        }
+        Arrays.sort(heights);
+        float medianHeight = Math.max(1, heights[size / 2]);
+        this.sectionGap = medianHeight * SECTION_GAP_RATIO;
+        this.columnGap = medianHeight * COLUMN_GAP_RATIO;
+        this.baselineTolerance = medianHeight * BASELINE_TOLERANCE_RATIO;
+        this.ordered = new ArrayList<>(size);
+    }
+
+    // Reorders the glyphs of one article in place
+    static void sort(List<TextPosition> positions) {
+        if (positions.size() < 2) return;
+        ReadingOrderLayout layout = new ReadingOrderLayout(positions);
+        int[] all = new int[positions.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        layout.order(all);
+        positions.clear();
+        positions.addAll(layout.ordered);
+    }
+
+    private void order(int[] glyphs) {
+        List<int[]> columns = splitColumns(glyphs);
+        if (columns != null) {
+            for (int[] column : columns) {
+                order(column);
+            }
+            return;
+        }
+        List<int[]> sections = split(glyphs, top, baseline, sectionGap);
+        if (sections.size() > 1) {
+            for (int[] section : sections) {
+                order(section);
+            }
+            return;
+        }
+        appendLines(glyphs);
+    }
+
+    // Null if there is no gutter that separates real columns
+    private List<int[]> splitColumns(int[] glyphs) {
+        List<int[]> columns = split(glyphs, left, right, columnGap);
+        if (columns.size() < 2) return null;
+        float[] previousBaselines = null;
+        for (int[] column : columns) {
+            float[] baselines = lineBaselines(column);
+            if (baselines.length < MIN_COLUMN_LINES) return null;
+            if (previousBaselines != null && countAligned(previousBaselines, baselines) > ALIGNED_LINES_RATIO * Math.min(previousBaselines.length, baselines.length)) {
+                return null;
+            }
+            previousBaselines = baselines;
+        }
+        return columns;
+    }
+
+    // Projects the [from, to] extents of the glyphs onto one axis and splits at empty runs of at least minGap,
+    // the parts are in increasing coordinate order
+    private static List<int[]> split(int[] glyphs, float[] from, float[] to, float minGap) {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int glyph : glyphs) {
+            min = Math.min(min, from[glyph]);
+            max = Math.max(max, to[glyph]);
+        }
+        int origin = (int) Math.floor(min);
+        long extent = (long) Math.ceil(max) - origin + 2;
+        if (extent > MAX_HISTOGRAM_SIZE) return List.of(glyphs);
+        int size = (int) extent;
+        int[] coverage = new int[size];
+        for (int glyph : glyphs) {
+            int start = (int) Math.floor(from[glyph]) - origin;
+            int end = Math.max(start + 1, (int) Math.ceil(to[glyph]) - origin);
+            coverage[start]++;
+            coverage[end]--;
+        }
+
+        // Part index of every cell, a new part starts after every wide enough empty run
+        int[] partOfCell = new int[size];
+        int part = 0;
+        int covered = 0;
+        int emptyRun = 0;
+        boolean started = false;
+        for (int cell = 0; cell < size; cell++) {
+            covered += coverage[cell];
+            if (covered > 0) {
+                if (started && emptyRun >= minGap) {
+                    part++;
+                }
+                started = true;
+                emptyRun = 0;
+            } else {
+                emptyRun++;
+            }
+            partOfCell[cell] = part;
+        }
+        if (part == 0) return List.of(glyphs);
+
+        int[] partSizes = new int[part + 1];
+        for (int glyph : glyphs) {
+            partSizes[partOfCell[(int) Math.floor(from[glyph]) - origin]]++;
+        }
+        List<int[]> parts = new ArrayList<>();
+        int[][] partGlyphs = new int[part + 1][];
+        for (int i = 0; i <= part; i++) {
+            partGlyphs[i] = new int[partSizes[i]];
+            partSizes[i] = 0;
+            parts.add(partGlyphs[i]);
+        }
+        for (int glyph : glyphs) {
+            int index = partOfCell[(int) Math.floor(from[glyph]) - origin];
+            partGlyphs[index][partSizes[index]++] = glyph;
+        }
+        return parts;
+    }
+
+    // Baselines of the lines of the glyphs, ascending
+    private float[] lineBaselines(int[] glyphs) {
+        float[] baselines = new float[glyphs.length];
+        for (int i = 0; i < glyphs.length; i++) {
+            baselines[i] = baseline[glyphs[i]];
+        }
+        Arrays.sort(baselines);
+        int lines = 0;
+        for (int i = 0; i < baselines.length; i++) {
+            if (lines == 0 || baselines[i] - baselines[lines - 1] > baselineTolerance) {
+                baselines[lines++] = baselines[i];
+            }
+        }
+        return Arrays.copyOf(baselines, lines);
+    }
+
+    private int countAligned(float[] a, float[] b) {
+        int aligned = 0;
+        int j = 0;
+        for (float value : a) {
+            while (j < b.length && b[j] < value - baselineTolerance) {
+                j++;
+            }
+            if (j < b.length && b[j] <= value + baselineTolerance) {
+                aligned++;
+            }
+        }
+        return aligned;
+    }
+
+    // Lines top to bottom, glyphs of a line left to right
+    private void appendLines(int[] glyphs) {
+        Integer[] byBaseline = new Integer[glyphs.length];
+        for (int i = 0; i < glyphs.length; i++) {
+            byBaseline[i] = glyphs[i];
+        }
+        Arrays.sort(byBaseline, (a, b) -> Float.compare(baseline[a], baseline[b]));
+
+        int lineStart = 0;
+        for (int i = 1; i <= byBaseline.length; i++) {
+            if (i == byBaseline.length || baseline[byBaseline[i]] - baseline[byBaseline[lineStart]] > baselineTolerance) {
+                Integer[] line = Arrays.copyOfRange(byBaseline, lineStart, i);
+                Arrays.sort(line, (a, b) -> Float.compare(left[a], left[b]));
+                for (int glyph : line) {
+                    ordered.add(positions.get(glyph));
+                }
+                lineStart = i;
+            }
+        }
+    }
+}
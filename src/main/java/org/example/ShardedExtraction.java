@@ -0,0 +1,312 @@
+package org.example;
+
+import com.google.gson.Gson;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Extraction of a corpus by several worker JVMs, on this machine or on every node that mounts the queue directory.
+//
+//   coordinate <file|dir>... --queue=dir [--out=dir] [--format=md|txt|jsonl] [--chunks] [--workers=n]
+//              [--pages-per-task=pages] [--worker-heap=2g] [--lease-timeout=seconds] [engine options]
+//   work --queue=dir [--lease-timeout=seconds] [--detection-threads=n] [engine options]
+//
+// The coordinator splits every document into tasks of at most --pages-per-task pages, so one huge document is
+// spread over the workers too, and puts them into a FileWorkQueue. It starts --workers local worker JVMs (0 when
+// only other nodes run `work`), puts the tasks of dead workers back when their lease expires, and when the queue
+// is drained merges the page results of every document in page order into one output file. Run it again with the
+// same queue to continue an interrupted batch, finished tasks are not extracted again. Task ids are derived from the
+// document (path, size and modification time), so inputs added, removed or changed meanwhile do not mix up tasks.
+// Header/footer detection runs per task, on a window of at least 40 pages around its range (see ExtractionRequest).
+public class ShardedExtraction {
+
+    private static final int DEFAULT_PAGES_PER_TASK = 200;
+    private static final int DEFAULT_LEASE_TIMEOUT_SECONDS = 120;
+    // A task whose worker died this many times is failed, it probably kills every worker
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long POLL_INTERVAL_MILLIS = 500;
+    // Options passed on to the local workers
+    private static final List<String> WORKER_OPTIONS = List.of("queue", "lease-timeout", "stages", "tables", "reading-order",
+            "sampled-threshold", "boilerplate", "page-cache", "table-cache", "detection-threads");
+
+    private static final Gson GSON = new Gson();
+
+    private ShardedExtraction() {
+    }
+
+    public static int coordinate(CommandLineOptions options) throws IOException, InterruptedException {
+        if (options.getArguments().isEmpty() || !options.has("queue")) {
+            System.err.println("Usage: pdf-extractor coordinate <file|dir>... --queue=dir [--out=dir] [--format=md|txt|jsonl] [--chunks] [--workers=n] [--pages-per-task=pages] [--worker-heap=2g] [--lease-timeout=seconds]");
+            return 2;
+        }
+        File outputDir = new File(options.get("out", "./output"));
+        String format = options.get("format", "md");
+        OutputSinks.checkFormat(format);
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IllegalArgumentException("Can not create output directory: " + outputDir);
+        }
+        FileWorkQueue queue = new FileWorkQueue(Paths.get(options.get("queue", null)));
+        long leaseTimeoutMillis = options.getInt("lease-timeout", DEFAULT_LEASE_TIMEOUT_SECONDS) * 1000L;
+
+        // The closed marker of an earlier run would make the workers exit while leased tasks are still running
+        queue.reopen();
+        // Task ids are deterministic: a continued queue only gets the tasks an interrupted run did not add
+        int existing = queue.count(FileWorkQueue.PENDING) + queue.count(FileWorkQueue.LEASED)
+                + queue.count(FileWorkQueue.DONE) + queue.count(FileWorkQueue.FAILED);
+        Set<String> documentKeys = new LinkedHashSet<>();
+        int tasks = addTasks(queue, options.getArguments(), options.getInt("pages-per-task", DEFAULT_PAGES_PER_TASK), documentKeys);
+        if (existing > 0) {
+            System.out.println("Continuing the queue with " + existing + " tasks, " + tasks + " added");
+        } else {
+            System.out.println("Queued " + tasks + " tasks");
+        }
+
+        int workerCount = options.getInt("workers", Runtime.getRuntime().availableProcessors());
+        List<Process> workers = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(startWorker(options, workerCount));
+        }
+        // A crashing worker is restarted, but not forever
+        int restarts = workerCount * MAX_ATTEMPTS;
+        while (queue.count(FileWorkQueue.PENDING) + queue.count(FileWorkQueue.LEASED) > 0) {
+            int expired = queue.reclaimExpired(leaseTimeoutMillis, MAX_ATTEMPTS);
+            if (expired > 0) {
+                System.err.println(expired + " leases expired, tasks put back");
+            }
+            for (int i = 0; i < workers.size(); i++) {
+                if (!workers.get(i).isAlive() && restarts > 0) {
+                    System.err.println("Worker exited with " + workers.get(i).exitValue() + ", restarting");
+                    workers.set(i, startWorker(options, workerCount));
+                    restarts--;
+                }
+            }
+            if (workerCount > 0 && workers.stream().noneMatch(Process::isAlive)) {
+                System.err.println("All workers exited, unfinished documents are not merged");
+                break;
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+        queue.close();
+        for (Process worker : workers) {
+            worker.waitFor();
+        }
+        return merge(queue, documentKeys, outputDir, format, options.getBoolean("chunks"));
+    }
+
+    // Extracts tasks until the queue is closed and drained
+    public static int work(CommandLineOptions options) throws IOException, InterruptedException {
+        if (!options.has("queue")) {
+            System.err.println("Usage: pdf-extractor work --queue=dir [--lease-timeout=seconds]");
+            return 2;
+        }
+        FileWorkQueue queue = new FileWorkQueue(Paths.get(options.get("queue", null)));
+        long leaseTimeoutMillis = options.getInt("lease-timeout", DEFAULT_LEASE_TIMEOUT_SECONDS) * 1000L;
+        String stages = options.get("stages", null);
+        ExtractionEngine engine = new ExtractionEngine(PdfExtractorCli.createConfig(options));
+        String workerId = ManagementFactory.getRuntimeMXBean().getName();
+
+        ScheduledExecutorService leaseRenewal = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int failed = 0;
+        try {
+            while (true) {
+                FileWorkQueue.Task task = queue.claim();
+                if (task == null) {
+                    if (queue.isClosed()) break;
+                    Thread.sleep(POLL_INTERVAL_MILLIS);
+                    continue;
+                }
+                long start = System.currentTimeMillis();
+                ScheduledFuture<?> renewal = leaseRenewal.scheduleAtFixedRate(() -> queue.renew(task),
+                        leaseTimeoutMillis / 4, leaseTimeoutMillis / 4, TimeUnit.MILLISECONDS);
+                Path partialResult = queue.newTemporaryPath();
+                try {
+                    extractTask(engine, task, ExtractionRequest.parse(task.getFirstPage() + "-" + task.getLastPage(), stages), partialResult);
+                    queue.complete(task, partialResult);
+                    System.out.println(workerId + ": " + task.getDocumentId() + " pages " + task.getFirstPage() + "-" + task.getLastPage()
+                            + " processed. Executed time: " + (double) (System.currentTimeMillis() - start) / 1000 + "s");
+                } catch (IOException | RuntimeException e) {
+                    failed++;
+                    System.err.println(workerId + ": " + task.getDocumentId() + " pages " + task.getFirstPage() + "-" + task.getLastPage()
+                            + " failed: " + e.getMessage());
+                    queue.fail(task, String.valueOf(e.getMessage()));
+                } finally {
+                    renewal.cancel(false);
+                    Files.deleteIfExists(partialResult);
+                }
+            }
+        } finally {
+            leaseRenewal.shutdownNow();
+        }
+        return failed == 0 ? 0 : 1;
+    }
+
+    // Task ids are the document key and the first page, so the tasks of a document are handed out in page order.
+    // Returns the number of tasks added, tasks already in the queue are kept as they are. The keys of the documents
+    // are added to documentKeys.
+    private static int addTasks(FileWorkQueue queue, List<String> paths, int pagesPerTask, Set<String> documentKeys) throws IOException {
+        int tasks = 0;
+        for (File file : PdfExtractorCli.listPdfFiles(paths)) {
+            String documentKey = getDocumentKey(file);
+            int pageCount;
+            try (PDDocument document = PDDocument.load(file, MemoryUsageSetting.setupTempFileOnly())) {
+                pageCount = document.getNumberOfPages();
+            } catch (IOException e) {
+                System.err.println(file.getName() + " failed: " + e.getMessage());
+                continue;
+            }
+            for (int firstPage = 1; firstPage <= Math.max(1, pageCount); firstPage += pagesPerTask) {
+                int lastPage = Math.max(firstPage, Math.min(pageCount, firstPage + pagesPerTask - 1));
+                String id = String.format("%s-%07d", documentKey, firstPage);
+                if (queue.add(new FileWorkQueue.Task(id, file.getAbsolutePath(), file.getName(), firstPage, lastPage, 0, null, null))) {
+                    tasks++;
+                }
+            }
+            documentKeys.add(documentKey);
+        }
+        return tasks;
+    }
+
+    // Same key only for the same version of the same file
+    static String getDocumentKey(File file) {
+        String document = file.getAbsolutePath() + "\n" + file.length() + "\n" + file.lastModified();
+        return UUID.nameUUIDFromBytes(document.getBytes(StandardCharsets.UTF_8)).toString().replace("-", "");
+    }
+
+    private static String getDocumentKey(FileWorkQueue.Task task) {
+        return task.getId().substring(0, task.getId().lastIndexOf('-'));
+    }
+
+    // Local worker with the JVM options of the coordinator. The local workers share the cores, also for detection.
+    private static Process startWorker(CommandLineOptions options, int workerCount) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            // Recordings and debug agents of the coordinator would clash
+            if (argument.startsWith("-XX:StartFlightRecording") || argument.startsWith("-agentlib")) continue;
+            // Workers are long-running, the C1-only settings of short runs would keep them slow
+            if (argument.startsWith("-XX:TieredStopAtLevel") || argument.equals("-XX:+UseSerialGC")) continue;
+            if (argument.startsWith("-Xmx") && options.has("worker-heap")) continue;
+            command.add(argument);
+        }
+        if (options.has("worker-heap")) {
+            command.add("-Xmx" + options.get("worker-heap", null));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PdfExtractorCli.class.getName());
+        command.add("work");
+        for (String option : WORKER_OPTIONS) {
+            if (options.has(option)) {
+                command.add("--" + option + "=" + options.get(option, null));
+            }
+        }
+        if (!options.has("detection-threads")) {
+            command.add("--detection-threads=" + ExtractionConfig.getDetectionParallelism(workerCount));
+        }
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    private static void extractTask(ExtractionEngine engine, FileWorkQueue.Task task, ExtractionRequest request, Path resultFile) throws IOException {
+        File file = new File(task.getPath());
+        try (PDDocument document = PDDocument.load(file);
+             BufferedWriter writer = Files.newBufferedWriter(resultFile, StandardCharsets.UTF_8)) {
+            PdfTextExtractor session = engine.newSession(document, task.getDocumentId());
+            session.setSource(PdfSource.of(file));
+            // One FilePage per line
+            session.extract(request, (page, structure) -> {
+                writer.write(GSON.toJson(page));
+                writer.newLine();
+            });
+        }
+    }
+
+    // Writes every document of this run whose tasks all succeeded, its pages in page order. Tasks of documents that
+    // are no longer in the input, or of their earlier versions, stay in the queue but are not merged.
+    private static int merge(FileWorkQueue queue, Set<String> documentKeys, File outputDir, String format, boolean chunks) throws IOException {
+        Map<String, List<FileWorkQueue.Task>> documents = new LinkedHashMap<>();
+        List<FileWorkQueue.Task> tasks = new ArrayList<>(queue.list(FileWorkQueue.DONE));
+        tasks.addAll(queue.list(FileWorkQueue.FAILED));
+        // Left over if the workers gave up, the document is incomplete
+        for (String state : List.of(FileWorkQueue.PENDING, FileWorkQueue.LEASED)) {
+            for (FileWorkQueue.Task task : queue.list(state)) {
+                task.setError("Not extracted");
+                tasks.add(task);
+            }
+        }
+        tasks.sort((a, b) -> a.getId().compareTo(b.getId()));
+        for (FileWorkQueue.Task task : tasks) {
+            if (documentKeys.contains(getDocumentKey(task))) {
+                documents.computeIfAbsent(getDocumentKey(task), k -> new ArrayList<>()).add(task);
+            }
+        }
+
+        int failed = 0;
+        for (List<FileWorkQueue.Task> documentTasks : documents.values()) {
+            String documentId = documentTasks.get(0).getDocumentId();
+            FileWorkQueue.Task failedTask = documentTasks.stream().filter(task -> task.getError() != null).findFirst().orElse(null);
+            if (failedTask != null) {
+                failed++;
+                System.err.println(documentId + " failed: pages " + failedTask.getFirstPage() + "-" + failedTask.getLastPage()
+                        + ": " + failedTask.getError());
+                continue;
+            }
+            File outputFile = new File(outputDir, documentId.replaceAll("(?i)\\.pdf$", "." + format));
+            Path partialFile = queue.newTemporaryPath();
+            try {
+                try (PageSink sink = OutputSinks.create(format, partialFile)) {
+                    sink.beginDocument(documentId);
+                    PdfWriter.ChunkSplitter splitter = chunks ? new PdfWriter.ChunkSplitter(sink::writeChunk) : null;
+                    for (FileWorkQueue.Task task : documentTasks) {
+                        try (BufferedReader reader = Files.newBufferedReader(queue.getResultPath(task), StandardCharsets.UTF_8)) {
+                            String line;
+                            while ((line = reader.readLine()) != null) {
+                                FilePage page = GSON.fromJson(line, FilePage.class);
+                                if (splitter != null) {
+                                    splitter.accept(page);
+                                } else {
+                                    sink.writePage(page);
+                                }
+                            }
+                        }
+                    }
+                    if (splitter != null) {
+                        splitter.finish();
+                    }
+                    sink.endDocument();
+                }
+                BatchManifest.moveAtomically(partialFile, outputFile.toPath());
+                System.out.println(documentId + " merged from " + documentTasks.size() + " tasks");
+            } catch (IOException | RuntimeException e) {
+                failed++;
+                System.err.println(documentId + " failed: " + e.getMessage());
+            } finally {
+                Files.deleteIfExists(partialFile);
+            }
+        }
+        return failed == 0 ? 0 : 1;
+    }
+}
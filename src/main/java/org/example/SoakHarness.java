@@ -0,0 +1,250 @@
+package org.example;
+
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+// Runs the extraction over a corpus for hours, the way a long-lived worker does, and fails on sustained growth:
+// heap after GC, open file descriptors, PDFBox scratch files, threads, and time per document.
+// Without a directory the synthetic document is extracted over and over.
+//
+//   SoakHarness [dir] [--duration=minutes] [--sample-every=seconds] [--max-heap-growth=MB/hour]
+//               [--max-slowdown=percent/hour] [--page-cache=pages] [--tables=...] (or: pdf-extractor soak ...)
+//
+// A growth counts only if the regression over the samples after warm-up is significant, so GC noise
+// and the JIT warm-up do not fail the run.
+public class SoakHarness {
+
+    private static final int DEFAULT_DURATION_MINUTES = 60;
+    private static final int DEFAULT_SAMPLE_INTERVAL_SECONDS = 30;
+    private static final double DEFAULT_MAX_HEAP_GROWTH_MB_PER_HOUR = 16;
+    private static final double DEFAULT_MAX_SLOWDOWN_PERCENT_PER_HOUR = 25;
+    // Descriptors, threads and scratch files above the first sample after warm-up
+    private static final int MAX_FILE_DESCRIPTOR_GROWTH = 8;
+    private static final int MAX_THREAD_GROWTH = 4;
+    private static final int MAX_SCRATCH_FILE_GROWTH = 0;
+    private static final double SIGNIFICANCE_LEVEL = 0.01;
+    private static final int MIN_SAMPLES = 5;
+    // The first samples belong to class loading and JIT compilation
+    private static final double WARM_UP_SAMPLE_SHARE = 0.2;
+    // Larger documents spill into scratch files, as in the workers
+    private static final long MAIN_MEMORY_BYTES = 64L * 1024 * 1024;
+    private static final double MB = 1024 * 1024;
+
+    private final ExtractionEngine engine;
+    private final List<File> corpus;
+    private final long durationMillis;
+    private final long sampleIntervalMillis;
+    private final List<Sample> samples = new ArrayList<>();
+    private final File scratchDir = new File(System.getProperty("java.io.tmpdir"));
+    private long documents;
+    private long failedDocuments;
+
+    public SoakHarness(ExtractionEngine engine, List<File> corpus, long durationMillis, long sampleIntervalMillis) {
+        this.engine = engine;
+        this.corpus = corpus;
+        this.durationMillis = durationMillis;
+        this.sampleIntervalMillis = sampleIntervalMillis;
+    }
+
+    public static void main(String[] args) throws IOException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        List<File> corpus = new ArrayList<>();
+        if (!options.getArguments().isEmpty()) {
+            File[] files = new File(options.getArguments().get(0)).listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf"));
+            if (files == null || files.length == 0) {
+                throw new IllegalArgumentException("No PDF files in: " + options.getArguments().get(0));
+            }
+            Arrays.sort(files);
+            corpus.addAll(Arrays.asList(files));
+        }
+        SoakHarness harness = new SoakHarness(new ExtractionEngine(PdfExtractorCli.createConfig(options)), corpus,
+                options.getInt("duration", DEFAULT_DURATION_MINUTES) * 60_000L,
+                options.getInt("sample-every", DEFAULT_SAMPLE_INTERVAL_SECONDS) * 1000L);
+        harness.run();
+        boolean passed = harness.report(
+                Double.parseDouble(options.get("max-heap-growth", String.valueOf(DEFAULT_MAX_HEAP_GROWTH_MB_PER_HOUR))),
+                Double.parseDouble(options.get("max-slowdown", String.valueOf(DEFAULT_MAX_SLOWDOWN_PERCENT_PER_HOUR))));
+        System.exit(passed ? 0 : 1);
+    }
+
+    public void run() throws IOException {
+        byte[] synthetic = corpus.isEmpty() ? SyntheticDocument.getBytes() : null;
+        long start = System.currentTimeMillis();
+        long windowStart = start;
+        long windowDocuments = 0;
+        long windowNanos = 0;
+        System.out.println("minutes\tdocuments\theapAfterGcMB\tfileDescriptors\tscratchFiles\tthreads\tmsPerDocument");
+        while (System.currentTimeMillis() - start < durationMillis) {
+            File file = corpus.isEmpty() ? null : corpus.get((int) (documents % corpus.size()));
+            long documentStart = System.nanoTime();
+            try {
+                extract(file, synthetic);
+            } catch (IOException | RuntimeException e) {
+                failedDocuments++;
+                System.err.println((file == null ? "synthetic" : file.getName()) + " failed: " + e.getMessage());
+            }
+            windowNanos += System.nanoTime() - documentStart;
+            windowDocuments++;
+            documents++;
+
+            long now = System.currentTimeMillis();
+            if (now - windowStart >= sampleIntervalMillis) {
+                Sample sample = takeSample((now - start) / 60_000.0, windowNanos / 1e6 / windowDocuments);
+                samples.add(sample);
+                System.out.println(sample);
+                windowStart = System.currentTimeMillis();
+                windowDocuments = 0;
+                windowNanos = 0;
+            }
+        }
+    }
+
+    private void extract(File file, byte[] synthetic) throws IOException {
+        MemoryUsageSetting memoryUsage = MemoryUsageSetting.setupMixed(MAIN_MEMORY_BYTES).setTempDir(scratchDir);
+        try (PDDocument document = file != null
+                ? PDDocument.load(file, memoryUsage)
+                : PDDocument.load(new ByteArrayInputStream(synthetic), memoryUsage)) {
+            PdfTextExtractor session = engine.newSession(document, file == null ? "synthetic-" + documents : file.getName());
+            if (file != null) {
+                session.setSource(PdfSource.of(file));
+            }
+            PdfWriter.ChunkSplitter splitter = new PdfWriter.ChunkSplitter(chunk -> { });
+            session.extract(true, splitter::accept);
+            splitter.finish();
+        }
+    }
+
+    private Sample takeSample(double minutes, double millisPerDocument) {
+        System.gc();
+        System.gc();
+        return new Sample(minutes, documents, getHeapAfterGc() / MB, getOpenFileDescriptors(), countScratchFiles(),
+                ManagementFactory.getThreadMXBean().getThreadCount(), millisPerDocument);
+    }
+
+    // Heap in use right after the last collection of every heap pool, unaffected by garbage created since
+    private static long getHeapAfterGc() {
+        long used = 0;
+        boolean reported = false;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null) {
+                used += usage.getUsed();
+                reported = true;
+            }
+        }
+        return reported ? used : ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    // -1 where the platform does not report descriptors
+    private static long getOpenFileDescriptors() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            return ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount();
+        }
+        return -1;
+    }
+
+    // PDFBox names its scratch files PDFBox*.tmp
+    private int countScratchFiles() {
+        File[] files = scratchDir.listFiles((dir, name) -> name.startsWith("PDFBox") && name.endsWith(".tmp"));
+        return files == null ? 0 : files.length;
+    }
+
+    // Prints the verdict of every check, returns false if any of them failed
+    public boolean report(double maxHeapGrowthMbPerHour, double maxSlowdownPercentPerHour) {
+        System.out.println("Documents: " + documents + ", failed: " + failedDocuments);
+        int warmUpSamples = (int) Math.ceil(samples.size() * WARM_UP_SAMPLE_SHARE);
+        List<Sample> steady = samples.subList(Math.min(warmUpSamples, samples.size()), samples.size());
+        if (steady.size() < MIN_SAMPLES) {
+            System.out.println("FAIL: " + steady.size() + " samples after warm-up, at least " + MIN_SAMPLES
+                    + " are needed; run longer or sample more often");
+            return false;
+        }
+        Sample baseline = steady.get(0);
+        Sample last = steady.get(steady.size() - 1);
+        boolean passed = failedDocuments == 0;
+        if (!passed) {
+            System.out.println("FAIL: " + failedDocuments + " documents failed");
+        }
+
+        SimpleRegression heap = regression(steady, sample -> sample.heapAfterGcMb);
+        passed &= check("heap after GC", heap.getSlope() * 60, "MB/hour", maxHeapGrowthMbPerHour, heap.getSignificance());
+
+        SimpleRegression time = regression(steady, sample -> sample.millisPerDocument);
+        double meanMillis = steady.stream().mapToDouble(sample -> sample.millisPerDocument).average().orElse(0);
+        double slowdown = meanMillis == 0 ? 0 : time.getSlope() * 60 / meanMillis * 100;
+        passed &= check("time per document", slowdown, "%/hour", maxSlowdownPercentPerHour, time.getSignificance());
+
+        if (baseline.fileDescriptors >= 0) {
+            passed &= checkGrowth("open file descriptors", baseline.fileDescriptors, last.fileDescriptors, MAX_FILE_DESCRIPTOR_GROWTH);
+        }
+        passed &= checkGrowth("scratch files", baseline.scratchFiles, last.scratchFiles, MAX_SCRATCH_FILE_GROWTH);
+        passed &= checkGrowth("threads", baseline.threads, last.threads, MAX_THREAD_GROWTH);
+        System.out.println(passed ? "PASSED" : "FAILED");
+        return passed;
+    }
+
+    private static SimpleRegression regression(List<Sample> samples, ToDoubleFunction<Sample> value) {
+        SimpleRegression regression = new SimpleRegression();
+        for (Sample sample : samples) {
+            regression.addData(sample.minutes, value.applyAsDouble(sample));
+        }
+        return regression;
+    }
+
+    // Growth fails only if the trend is both above the limit and statistically significant
+    private static boolean check(String name, double growthPerHour, String unit, double limit, double significance) {
+        boolean failed = growthPerHour > limit && significance < SIGNIFICANCE_LEVEL;
+        System.out.println(String.format(Locale.ROOT, "%s: %s trend %+.2f %s (limit %.2f, p=%.4f)",
+                failed ? "FAIL" : "OK", name, growthPerHour, unit, limit, significance));
+        return !failed;
+    }
+
+    private static boolean checkGrowth(String name, long baseline, long last, long limit) {
+        boolean failed = last - baseline > limit;
+        System.out.println(String.format(Locale.ROOT, "%s: %s %d -> %d (limit +%d)", failed ? "FAIL" : "OK", name, baseline, last, limit));
+        return !failed;
+    }
+
+    private static class Sample {
+        private final double minutes;
+        private final long documents;
+        private final double heapAfterGcMb;
+        private final long fileDescriptors;
+        private final int scratchFiles;
+        private final int threads;
+        private final double millisPerDocument;
+
+        private Sample(double minutes, long documents, double heapAfterGcMb, long fileDescriptors, int scratchFiles,
+                       int threads, double millisPerDocument) {
+            this.minutes = minutes;
+            this.documents = documents;
+            this.heapAfterGcMb = heapAfterGcMb;
+            this.fileDescriptors = fileDescriptors;
+            this.scratchFiles = scratchFiles;
+            this.threads = threads;
+            this.millisPerDocument = millisPerDocument;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%.1f\t%d\t%.1f\t%d\t%d\t%d\t%.1f",
+                    minutes, documents, heapAfterGcMb, fileDescriptors, scratchFiles, threads, millisPerDocument);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+import com.spire.pdf.PdfDocument;
+import com.spire.pdf.utilities.PdfTable;
+import com.spire.pdf.utilities.PdfTableExtractor;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import technology.tabula.Page;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Spire.PDF table detection. Spire does not report table or cell positions, so the grids
+// carry text only (zero bounds): usable for comparisons, not for replacing tables in the page text,
+// which is why it is only available to TableBackendBenchmark.
+public class SpireTableExtractor implements TableExtractor {
+
+    private PDDocument loadedDocument;
+    private PdfDocument pdf;
+    private PdfTableExtractor extractor;
+
+    @Override
+    public String getName() {
+        return "spire";
+    }
+
+    @Override
+    public void open(PDDocument document) throws IOException {
+        getExtractor(document);
+    }
+
+    @Override
+    public List<StructuredPage.TableGrid> extract(PDDocument document, Page page) throws IOException {
+        PdfTable[] tables = getExtractor(document).extractTable(page.getPageNumber() - 1);
+        List<StructuredPage.TableGrid> grids = new ArrayList<>();
+        if (tables == null) return grids;
+
+        for (PdfTable table : tables) {
+            StructuredPage.TableGrid grid = new StructuredPage.TableGrid(0, 0, 0, 0);
+            for (int i = 0; i < table.getRowCount(); i++) {
+                List<StructuredPage.TableCell> cells = new ArrayList<>();
+                for (int j = 0; j < table.getColumnCount(); j++) {
+                    cells.add(new StructuredPage.TableCell(0, 0, 0, 0, table.getText(i, j)));
+                }
+                grid.getRows().add(cells);
+            }
+            grids.add(grid);
+        }
+        return grids;
+    }
+
+    // Spire parses its own copy of the document, loaded once per PDDocument
+    private PdfTableExtractor getExtractor(PDDocument document) throws IOException {
+        if (document != loadedDocument) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            if (pdf != null) {
+                pdf.close();
+            }
+            pdf = new PdfDocument();
+            pdf.loadFromBytes(out.toByteArray());
+            extractor = new PdfTableExtractor(pdf);
+            loadedDocument = document;
+        }
+        return extractor;
+    }
+}
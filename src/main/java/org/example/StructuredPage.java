@@ -0,0 +1,95 @@
+package org.example;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Page layout as the extractor saw it, coordinates are in points from the top-left corner of the page
+@Data
+@NoArgsConstructor
+public class StructuredPage {
+    private int pageNumber;
+    private float width;
+    private float height;
+    private List<TextBlock> blocks = new ArrayList<>();
+    private List<TableGrid> tables = new ArrayList<>();
+    private List<FormValue> formValues = new ArrayList<>();
+    private List<Question> questions = new ArrayList<>();
+
+    public StructuredPage(int pageNumber, float width, float height) {
+        this.pageNumber = pageNumber;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class TextBlock {
+        private float x;
+        private float y;
+        private float width;
+        private float height;
+        private String text;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class TableGrid {
+        private float x;
+        private float y;
+        private float width;
+        private float height;
+        private List<List<TableCell>> rows = new ArrayList<>();
+
+        public TableGrid(float x, float y, float width, float height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public int getColumnCount() {
+            return rows.stream().mapToInt(List::size).max().orElse(0);
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class TableCell {
+        private float x;
+        private float y;
+        private float width;
+        private float height;
+        private String text;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class FormValue {
+        private String name;
+        private float x;
+        private float y;
+        private float width;
+        private float height;
+        private String value;
+    }
+
+    // SSEL question table, number is the "1.4.3" part of the question text
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Question {
+        private String number;
+        private float x;
+        private float y;
+        private float width;
+        private float height;
+        private String text;
+    }
+}
@@ -0,0 +1,8 @@
+package org.example;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface StructuredPageListener {
+    void onPage(FilePage page, StructuredPage structure) throws IOException;
+}
@@ -0,0 +1,177 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.example.StructuredResultWriter.*;
+
+// Reads the format written by StructuredResultWriter. Page views, sections and strings are slices
+// of the underlying (usually memory-mapped) buffer, nothing is decoded until a field is read.
+public class StructuredResultReader {
+
+    private final ByteBuffer buffer;
+
+    public StructuredResultReader(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+        if (this.buffer.remaining() < FILE_HEADER_SIZE || this.buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a structured extraction result");
+        }
+        short version = this.buffer.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported structured result version: " + version);
+        }
+        this.buffer.getShort();
+    }
+
+    public static StructuredResultReader open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new StructuredResultReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public boolean hasNext() {
+        return buffer.remaining() >= Integer.BYTES;
+    }
+
+    public PageView next() {
+        int length = buffer.getInt();
+        ByteBuffer page = slice(buffer, buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return new PageView(page);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(offset + length).position(offset);
+        return duplicate.slice();
+    }
+
+    public static class PageView {
+        private final ByteBuffer page;
+        private final int heapOffset;
+
+        private PageView(ByteBuffer page) {
+            this.page = page;
+            this.heapOffset = PAGE_HEADER_SIZE
+                    + getBlockCount() * BLOCK_SIZE
+                    + getTableCount() * TABLE_SIZE
+                    + getCellCount() * CELL_SIZE
+                    + getFormCount() * FORM_SIZE
+                    + getQuestionCount() * QUESTION_SIZE;
+        }
+
+        public int getPageNumber() {
+            return page.getInt(0);
+        }
+
+        public float getWidth() {
+            return page.getFloat(4);
+        }
+
+        public float getHeight() {
+            return page.getFloat(8);
+        }
+
+        public int getBlockCount() {
+            return page.getInt(12);
+        }
+
+        public int getTableCount() {
+            return page.getInt(16);
+        }
+
+        public int getCellCount() {
+            return page.getInt(20);
+        }
+
+        public int getFormCount() {
+            return page.getInt(24);
+        }
+
+        public int getQuestionCount() {
+            return page.getInt(28);
+        }
+
+        public Section blocks() {
+            return new Section(PAGE_HEADER_SIZE, getBlockCount(), BLOCK_SIZE);
+        }
+
+        public Section tables() {
+            return new Section(blocks().end(), getTableCount(), TABLE_SIZE);
+        }
+
+        // Cells of all tables, a table references its cells with TABLE_FIRST_CELL
+        public Section cells() {
+            return new Section(tables().end(), getCellCount(), CELL_SIZE);
+        }
+
+        public Section forms() {
+            return new Section(cells().end(), getFormCount(), FORM_SIZE);
+        }
+
+        public Section questions() {
+            return new Section(forms().end(), getQuestionCount(), QUESTION_SIZE);
+        }
+
+        public class Section {
+            private final int offset;
+            private final int count;
+            private final int recordSize;
+
+            private Section(int offset, int count, int recordSize) {
+                this.offset = offset;
+                this.count = count;
+                this.recordSize = recordSize;
+            }
+
+            public int size() {
+                return count;
+            }
+
+            public float getX(int index) {
+                return page.getFloat(recordOffset(index));
+            }
+
+            public float getY(int index) {
+                return page.getFloat(recordOffset(index) + 4);
+            }
+
+            public float getWidth(int index) {
+                return page.getFloat(recordOffset(index) + 8);
+            }
+
+            public float getHeight(int index) {
+                return page.getFloat(recordOffset(index) + 12);
+            }
+
+            public int getInt(int index, int field) {
+                return page.getInt(recordOffset(index) + field);
+            }
+
+            // UTF-8 bytes of a string field without copying
+            public ByteBuffer getBytes(int index, int field) {
+                int reference = recordOffset(index) + field;
+                return slice(page, heapOffset + page.getInt(reference), page.getInt(reference + 4));
+            }
+
+            public String getString(int index, int field) {
+                return StandardCharsets.UTF_8.decode(getBytes(index, field)).toString();
+            }
+
+            private int recordOffset(int index) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException("Record " + index + " of " + count);
+                }
+                return offset + index * recordSize;
+            }
+
+            private int end() {
+                return offset + count * recordSize;
+            }
+        }
+    }
+}
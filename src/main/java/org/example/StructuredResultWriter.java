@@ -0,0 +1,161 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Compact binary form of StructuredPage records (big-endian):
+//
+//   file   := MAGIC:int VERSION:short 0:short page*
+//   page   := length:int header blocks tables cells forms questions stringHeap
+//   header := pageNumber:int width:float height:float
+//             blockCount:int tableCount:int cellCount:int formCount:int questionCount:int
+//
+// Every record has a fixed size and starts with its bounds (x, y, width, height as floats).
+// Strings are (offset:int, length:int) references into the UTF-8 string heap at the end of the page,
+// so readers access any field with absolute reads and slice strings without copying.
+public class StructuredResultWriter implements Closeable {
+
+    public static final int MAGIC = 0x50445853; // "PDXS"
+    public static final short VERSION = 1;
+    public static final int FILE_HEADER_SIZE = 8;
+    public static final int PAGE_HEADER_SIZE = 32;
+
+    public static final int BLOCK_SIZE = 24;
+    public static final int BLOCK_TEXT = 16;
+
+    public static final int TABLE_SIZE = 28;
+    public static final int TABLE_ROW_COUNT = 16;
+    public static final int TABLE_COLUMN_COUNT = 20;
+    public static final int TABLE_FIRST_CELL = 24;
+
+    public static final int CELL_SIZE = 32;
+    public static final int CELL_ROW = 16;
+    public static final int CELL_COLUMN = 20;
+    public static final int CELL_TEXT = 24;
+
+    public static final int FORM_SIZE = 32;
+    public static final int FORM_NAME = 16;
+    public static final int FORM_VALUE = 24;
+
+    public static final int QUESTION_SIZE = 32;
+    public static final int QUESTION_NUMBER = 16;
+    public static final int QUESTION_TEXT = 24;
+
+    private static final int INITIAL_HEAP_SIZE = 16 * 1024;
+
+    private final WritableByteChannel channel;
+    private ByteBuffer heap = ByteBuffer.allocate(INITIAL_HEAP_SIZE);
+
+    public StructuredResultWriter(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).flip();
+        writeFully(header);
+    }
+
+    public static StructuredResultWriter create(Path path) throws IOException {
+        return new StructuredResultWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    public void write(StructuredPage page) throws IOException {
+        int cellCount = 0;
+        for (StructuredPage.TableGrid table : page.getTables()) {
+            for (List<StructuredPage.TableCell> row : table.getRows()) {
+                cellCount += row.size();
+            }
+        }
+        int recordsSize = PAGE_HEADER_SIZE
+                + page.getBlocks().size() * BLOCK_SIZE
+                + page.getTables().size() * TABLE_SIZE
+                + cellCount * CELL_SIZE
+                + page.getFormValues().size() * FORM_SIZE
+                + page.getQuestions().size() * QUESTION_SIZE;
+        ByteBuffer records = ByteBuffer.allocate(Integer.BYTES + recordsSize);
+        heap.clear();
+
+        records.putInt(0); // page length, filled in below
+        records.putInt(page.getPageNumber()).putFloat(page.getWidth()).putFloat(page.getHeight());
+        records.putInt(page.getBlocks().size())
+                .putInt(page.getTables().size())
+                .putInt(cellCount)
+                .putInt(page.getFormValues().size())
+                .putInt(page.getQuestions().size());
+
+        for (StructuredPage.TextBlock block : page.getBlocks()) {
+            putBounds(records, block.getX(), block.getY(), block.getWidth(), block.getHeight());
+            putString(records, block.getText());
+        }
+
+        int firstCell = 0;
+        for (StructuredPage.TableGrid table : page.getTables()) {
+            putBounds(records, table.getX(), table.getY(), table.getWidth(), table.getHeight());
+            records.putInt(table.getRows().size()).putInt(table.getColumnCount()).putInt(firstCell);
+            for (List<StructuredPage.TableCell> row : table.getRows()) {
+                firstCell += row.size();
+            }
+        }
+        for (StructuredPage.TableGrid table : page.getTables()) {
+            for (int rowIndex = 0; rowIndex < table.getRows().size(); rowIndex++) {
+                List<StructuredPage.TableCell> row = table.getRows().get(rowIndex);
+                for (int columnIndex = 0; columnIndex < row.size(); columnIndex++) {
+                    StructuredPage.TableCell cell = row.get(columnIndex);
+                    putBounds(records, cell.getX(), cell.getY(), cell.getWidth(), cell.getHeight());
+                    records.putInt(rowIndex).putInt(columnIndex);
+                    putString(records, cell.getText());
+                }
+            }
+        }
+
+        for (StructuredPage.FormValue formValue : page.getFormValues()) {
+            putBounds(records, formValue.getX(), formValue.getY(), formValue.getWidth(), formValue.getHeight());
+            putString(records, formValue.getName());
+            putString(records, formValue.getValue());
+        }
+
+        for (StructuredPage.Question question : page.getQuestions()) {
+            putBounds(records, question.getX(), question.getY(), question.getWidth(), question.getHeight());
+            putString(records, question.getNumber());
+            putString(records, question.getText());
+        }
+
+        records.putInt(0, recordsSize + heap.position());
+        records.flip();
+        heap.flip();
+        writeFully(records);
+        writeFully(heap);
+    }
+
+    private void putBounds(ByteBuffer records, float x, float y, float width, float height) {
+        records.putFloat(x).putFloat(y).putFloat(width).putFloat(height);
+    }
+
+    private void putString(ByteBuffer records, String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (heap.remaining() < bytes.length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(heap.capacity() * 2, heap.position() + bytes.length));
+            heap.flip();
+            grown.put(heap);
+            heap = grown;
+        }
+        records.putInt(heap.position()).putInt(bytes.length);
+        heap.put(bytes);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
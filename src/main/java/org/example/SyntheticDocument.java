@@ -0,0 +1,185 @@
+package org.example;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDCheckBox;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+// Small generated SSEL document that goes through every extraction path: headers and footers, project details
+// (page 2) and table of contents (page 3) so it is classified as SSEL, question tables and form fields
+public class SyntheticDocument {
+
+    private static final PDFont FONT = PDType1Font.HELVETICA;
+    private static final float FONT_SIZE = 10;
+    private static final float MARGIN = 50;
+    private static final float ROW_HEIGHT = 20;
+    private static final int QUESTION_PAGES = 4;
+
+    private static byte[] bytes;
+
+    private SyntheticDocument() {
+    }
+
+    public static synchronized byte[] getBytes() throws IOException {
+        if (bytes == null) {
+            try (PDDocument document = create()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                document.save(out);
+                bytes = out.toByteArray();
+            }
+        }
+        return bytes;
+    }
+
+    public static PDDocument load() throws IOException {
+        return PDDocument.load(getBytes());
+    }
+
+    public static PDDocument create() throws IOException {
+        PDDocument document = new PDDocument();
+        PDAcroForm acroForm = new PDAcroForm(document);
+        PDResources resources = new PDResources();
+        resources.put(COSName.getPDFName("Helv"), FONT);
+        acroForm.setDefaultResources(resources);
+        acroForm.setDefaultAppearance("/Helv 10 Tf 0 g");
+        document.getDocumentCatalog().setAcroForm(acroForm);
+
+        int pageCount = 4 + QUESTION_PAGES;
+        for (int pageNumber = 1; pageNumber <= pageCount; pageNumber++) {
+            PDPage page = new PDPage(PDRectangle.LETTER);
+            document.addPage(page);
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                // The body comes first in the content stream: classification looks at the start of the page text
+                float top = page.getMediaBox().getHeight() - 120;
+                if (pageNumber == 1) {
+                    writeLine(contentStream, MARGIN, top, "Request for Proposal: Synthetic Warm-up Project");
+                } else if (pageNumber == 2) {
+                    writeLine(contentStream, MARGIN, top + ROW_HEIGHT, "Project Details");
+                    writeTable(contentStream, MARGIN, top, new float[]{150, 300}, projectDetailsRows());
+                } else if (pageNumber == 3) {
+                    writeLine(contentStream, MARGIN, top, "TABLE OF CONTENTS");
+                    for (int i = 1; i <= QUESTION_PAGES; i++) {
+                        writeLine(contentStream, MARGIN, top - ROW_HEIGHT * i, String.format("1.%d Section %d ........ %d", i, i, i + 4));
+                    }
+                } else if (pageNumber == 4) {
+                    writeLine(contentStream, MARGIN, top, "Instructions");
+                    writeLine(contentStream, MARGIN, top - ROW_HEIGHT, "Please answer every question below.");
+                } else {
+                    int section = pageNumber - 4;
+                    writeTable(contentStream, MARGIN, top, new float[]{450},
+                            List.of(List.of(String.format("1.%d.1 Question%d describe your approach", section, section))));
+                    writeTable(contentStream, MARGIN, top - 2 * ROW_HEIGHT, new float[]{150, 300}, List.of(
+                            List.of("Response", ""),
+                            List.of("Comment", "Answer for section " + section)
+                    ));
+                    addTextField(acroForm, page, "response" + section, "Synthetic response " + section,
+                            new PDRectangle(MARGIN + 152, top - 3 * ROW_HEIGHT + 2, 296, ROW_HEIGHT - 4));
+                    addCheckBox(acroForm, page, "agree" + section,
+                            new PDRectangle(MARGIN, top - 5 * ROW_HEIGHT, 12, 12));
+                    writeLine(contentStream, MARGIN + 20, top - 5 * ROW_HEIGHT + 2, "I agree with the terms");
+                    writeLine(contentStream, MARGIN, top - 7 * ROW_HEIGHT, "(No file attached)");
+                }
+                writeHeaderAndFooter(contentStream, page, pageNumber, pageCount);
+            }
+        }
+        return document;
+    }
+
+    private static List<List<String>> projectDetailsRows() {
+        return List.of(
+                List.of("Project Title", "Synthetic Warm-up Project"),
+                List.of("Status", "Published"),
+                List.of("Author", "Extraction Service"),
+                List.of("Response Deadline", "01/01/2030"),
+                List.of("Created", "01/01/2024"),
+                List.of("Published", "01/02/2024"),
+                List.of("Visibility", "Public"),
+                List.of("Categories", "Testing"),
+                List.of("Scoring Formula", "Weighted"),
+                List.of("Synopsis", "Document used to warm up extraction workers")
+        );
+    }
+
+    private static void writeHeaderAndFooter(PDPageContentStream contentStream, PDPage page, int pageNumber, int pageCount) throws IOException {
+        float height = page.getMediaBox().getHeight();
+        writeLine(contentStream, MARGIN, height - 40, "Synthetic Warm-up Project - Confidential");
+        writeLine(contentStream, MARGIN, 30, String.format("Page %d of %d", pageNumber, pageCount));
+    }
+
+    private static void writeTable(PDPageContentStream contentStream, float x, float top, float[] columnWidths, List<List<String>> rows) throws IOException {
+        float width = 0;
+        for (float columnWidth : columnWidths) {
+            width += columnWidth;
+        }
+        float bottom = top - rows.size() * ROW_HEIGHT;
+
+        for (int i = 0; i <= rows.size(); i++) {
+            float y = top - i * ROW_HEIGHT;
+            contentStream.moveTo(x, y);
+            contentStream.lineTo(x + width, y);
+        }
+        float columnX = x;
+        for (int i = 0; i <= columnWidths.length; i++) {
+            contentStream.moveTo(columnX, top);
+            contentStream.lineTo(columnX, bottom);
+            if (i < columnWidths.length) {
+                columnX += columnWidths[i];
+            }
+        }
+        contentStream.stroke();
+
+        for (int row = 0; row < rows.size(); row++) {
+            float cellX = x;
+            for (int column = 0; column < columnWidths.length; column++) {
+                String text = rows.get(row).get(column);
+                if (!text.isEmpty()) {
+                    writeLine(contentStream, cellX + 4, top - (row + 1) * ROW_HEIGHT + 6, text);
+                }
+                cellX += columnWidths[column];
+            }
+        }
+    }
+
+    private static void writeLine(PDPageContentStream contentStream, float x, float y, String text) throws IOException {
+        contentStream.beginText();
+        contentStream.setFont(FONT, FONT_SIZE);
+        contentStream.newLineAtOffset(x, y);
+        contentStream.showText(text);
+        contentStream.endText();
+    }
+
+    private static void addTextField(PDAcroForm acroForm, PDPage page, String name, String value, PDRectangle rectangle) throws IOException {
+        PDTextField field = new PDTextField(acroForm);
+        field.setPartialName(name);
+        field.setDefaultAppearance("/Helv 10 Tf 0 g");
+        acroForm.getFields().add(field);
+        addWidget(field.getWidgets().get(0), page, rectangle);
+        field.setValue(value);
+    }
+
+    private static void addCheckBox(PDAcroForm acroForm, PDPage page, String name, PDRectangle rectangle) throws IOException {
+        PDCheckBox field = new PDCheckBox(acroForm);
+        field.setPartialName(name);
+        acroForm.getFields().add(field);
+        addWidget(field.getWidgets().get(0), page, rectangle);
+    }
+
+    private static void addWidget(PDAnnotationWidget widget, PDPage page, PDRectangle rectangle) throws IOException {
+        widget.setRectangle(rectangle);
+        widget.setPage(page);
+        widget.setPrinted(true);
+        page.getAnnotations().add(widget);
+    }
+}
@@ -0,0 +1,196 @@
+package org.example;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import technology.tabula.Page;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Runs every table backend over a corpus and reports, per document class (ssel/other):
+// per-page latency, allocated memory and cell-level agreement with the reference backend.
+// Every backend is timed from the PDF page to its tables, including the tabula page it is given;
+// per-document set-up (Spire's own copy of the document) is reported separately.
+//
+//   TableBackendBenchmark <dir> [--reference=tabula] [--warm-up=pages]
+public class TableBackendBenchmark {
+
+    private static final int DEFAULT_WARM_UP_PAGES = 20;
+
+    private final List<TableExtractor> backends;
+    private final String reference;
+    private final Map<String, BackendStats> stats = new LinkedHashMap<>();
+    private final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private int warmUpPages;
+
+    public TableBackendBenchmark(List<TableExtractor> backends, String reference, int warmUpPages) {
+        this.backends = backends;
+        this.reference = reference;
+        this.warmUpPages = warmUpPages;
+    }
+
+    public static void main(String[] args) throws IOException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.getArguments().isEmpty()) {
+            System.err.println("Usage: TableBackendBenchmark <dir> [--reference=tabula] [--warm-up=pages]");
+            System.exit(2);
+        }
+        List<TableExtractor> backends = new ArrayList<>();
+        for (String name : TableExtractor.BENCHMARK_NAMES) {
+            backends.add(TableExtractor.forName(name));
+        }
+        TableBackendBenchmark benchmark = new TableBackendBenchmark(backends, options.get("reference", "tabula"),
+                options.getInt("warm-up", DEFAULT_WARM_UP_PAGES));
+
+        File[] files = new File(options.getArguments().get(0)).listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf"));
+        if (files == null) {
+            throw new IllegalArgumentException("Not a directory: " + options.getArguments().get(0));
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            try (PDDocument document = PDDocument.load(file)) {
+                benchmark.run(document);
+            } catch (IOException | RuntimeException e) {
+                System.err.println(file.getName() + " failed: " + e.getMessage());
+            }
+        }
+        benchmark.printReport();
+    }
+
+    public void run(PDDocument document) throws IOException {
+        String documentClass = new PdfTextExtractor(document).isSselDocument() ? "ssel" : "other";
+        Map<String, Long> openCosts = new HashMap<>();
+        for (TableExtractor backend : backends) {
+            long start = System.nanoTime();
+            try {
+                backend.open(document);
+            } catch (IOException | RuntimeException e) {
+                // Fails again on every page, counted there
+            }
+            openCosts.put(backend.getName(), System.nanoTime() - start);
+        }
+        boolean measured = false;
+        for (int pageNumber = 1; pageNumber <= document.getNumberOfPages(); pageNumber++) {
+            Map<String, List<StructuredPage.TableGrid>> results = new HashMap<>();
+            Map<String, long[]> costs = new HashMap<>();
+            for (TableExtractor backend : backends) {
+                long allocatedBefore = threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                long start = System.nanoTime();
+                List<StructuredPage.TableGrid> tables;
+                try {
+                    Page page = PageCapture.capture(document, pageNumber);
+                    tables = backend.extract(document, page);
+                } catch (IOException | RuntimeException e) {
+                    tables = null;
+                }
+                long elapsed = System.nanoTime() - start;
+                long allocated = threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+                results.put(backend.getName(), tables);
+                costs.put(backend.getName(), new long[]{elapsed, allocated});
+            }
+            if (warmUpPages > 0) {
+                warmUpPages--;
+                continue;
+            }
+            if (!measured) {
+                measured = true;
+                for (TableExtractor backend : backends) {
+                    stats.computeIfAbsent(documentClass + "/" + backend.getName(), k -> new BackendStats())
+                            .openMillis.addValue(openCosts.get(backend.getName()) / 1_000_000.0);
+                }
+            }
+
+            List<StructuredPage.TableGrid> referenceTables = results.get(reference);
+            for (TableExtractor backend : backends) {
+                BackendStats backendStats = stats.computeIfAbsent(documentClass + "/" + backend.getName(), k -> new BackendStats());
+                long[] cost = costs.get(backend.getName());
+                List<StructuredPage.TableGrid> tables = results.get(backend.getName());
+                if (tables == null) {
+                    backendStats.failures++;
+                    continue;
+                }
+                backendStats.latencyMillis.addValue(cost[0] / 1_000_000.0);
+                backendStats.allocatedKb.addValue(cost[1] / 1024.0);
+                backendStats.tables += tables.size();
+                if (referenceTables != null) {
+                    backendStats.agreement.addValue(cellAgreement(cellTexts(referenceTables), cellTexts(tables)));
+                }
+            }
+        }
+    }
+
+    public void printReport() {
+        System.out.printf(Locale.ROOT, "%-16s %7s %7s %9s %9s %9s %12s %11s %9s %8s%n",
+                "backend", "pages", "tables", "mean ms", "p50 ms", "p95 ms", "alloc KB/pg", "open ms/doc", "agree", "failed");
+        for (Map.Entry<String, BackendStats> entry : stats.entrySet()) {
+            BackendStats s = entry.getValue();
+            System.out.printf(Locale.ROOT, "%-16s %7d %7d %9.2f %9.2f %9.2f %12.1f %11.2f %9.3f %8d%n",
+                    entry.getKey(),
+                    s.latencyMillis.getN(),
+                    s.tables,
+                    s.latencyMillis.getMean(),
+                    s.latencyMillis.getPercentile(50),
+                    s.latencyMillis.getPercentile(95),
+                    s.allocatedKb.getMean(),
+                    s.openMillis.getMean(),
+                    s.agreement.getMean(),
+                    s.failures);
+        }
+        System.out.println("agree: mean F1 of non-empty cell texts against the '" + reference + "' backend per page");
+    }
+
+    private List<String> cellTexts(List<StructuredPage.TableGrid> tables) {
+        List<String> texts = new ArrayList<>();
+        for (StructuredPage.TableGrid table : tables) {
+            for (List<StructuredPage.TableCell> row : table.getRows()) {
+                for (StructuredPage.TableCell cell : row) {
+                    String text = normalize(cell.getText());
+                    if (!text.isEmpty()) {
+                        texts.add(text);
+                    }
+                }
+            }
+        }
+        return texts;
+    }
+
+    private String normalize(String text) {
+        return text == null ? "" : text.replaceAll("\\s+", " ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    // F1 over the multisets of cell texts; pages without tables in both backends fully agree
+    private double cellAgreement(List<String> expected, List<String> actual) {
+        if (expected.isEmpty() && actual.isEmpty()) return 1;
+        Map<String, Integer> remaining = new HashMap<>();
+        for (String text : expected) {
+            remaining.merge(text, 1, Integer::sum);
+        }
+        int matched = 0;
+        for (String text : actual) {
+            Integer count = remaining.get(text);
+            if (count != null && count > 0) {
+                remaining.put(text, count - 1);
+                matched++;
+            }
+        }
+        return 2.0 * matched / (expected.size() + actual.size());
+    }
+
+    private static class BackendStats {
+        private final DescriptiveStatistics latencyMillis = new DescriptiveStatistics();
+        private final DescriptiveStatistics allocatedKb = new DescriptiveStatistics();
+        // Per document, of the documents with measured pages
+        private final DescriptiveStatistics openMillis = new DescriptiveStatistics();
+        private final DescriptiveStatistics agreement = new DescriptiveStatistics();
+        private int tables;
+        private int failures;
+    }
+}
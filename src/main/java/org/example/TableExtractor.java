@@ -0,0 +1,39 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import technology.tabula.Page;
+
+import java.io.IOException;
+import java.util.List;
+
+// Table detection backend. Rows of a returned grid are padded to the same number of cells,
+// missing cells have empty text and zero size.
+public interface TableExtractor {
+
+    // Backends for extraction
+    List<String> NAMES = List.of("tabula", "lines");
+    // Spire grids have no bounds, so their cells can not be matched to the page text: comparisons only
+    List<String> BENCHMARK_NAMES = List.of("tabula", "spire", "lines");
+    int MIN_TABLE_CELL_HEIGHT_AND_WIDTH = 10;
+
+    static TableExtractor forName(String name) {
+        switch (name) {
+            case "tabula":
+                return new TabulaTableExtractor(MIN_TABLE_CELL_HEIGHT_AND_WIDTH);
+            case "spire":
+                return new SpireTableExtractor();
+            case "lines":
+                return new LineTableExtractor();
+            default:
+                throw new IllegalArgumentException("Unknown table backend: " + name + ", expected one of " + BENCHMARK_NAMES);
+        }
+    }
+
+    String getName();
+
+    // Per-document set-up, before the first page of the document
+    default void open(PDDocument document) throws IOException {
+    }
+
+    List<StructuredPage.TableGrid> extract(PDDocument document, Page page) throws IOException;
+}
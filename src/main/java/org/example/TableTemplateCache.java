@@ -0,0 +1,125 @@
+package org.example;
+
+import technology.tabula.Page;
+import technology.tabula.Ruling;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cross-document cache of table layouts. SSEL documents repeat the same question-table layouts on hundreds of
+// pages, and documents of one generator share them too, but the lattice detection rebuilds the cell grid from the
+// rulings on every page. The grid only depends on the rulings and the page size, so pages are keyed by their
+// rulings rounded to a tenth of a point: a hit returns the cell geometry of the tables (without text), which
+// CachingTableExtractor fills with the text of the page. Thread-safe, the least recently used layouts are evicted.
+public class TableTemplateCache {
+
+    // Rulings of one layout may differ by float noise between pages
+    private static final float QUANTUM = 0.1f;
+
+    private final Map<String, Template> templates;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TableTemplateCache(int maxTemplates) {
+        this.templates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+                return size() > maxTemplates;
+            }
+        };
+    }
+
+    // Sorted rounded rulings and page size: x1, y1, x2, y2 of every ruling, then width and height
+    static int[] getSignature(Page page) {
+        List<Ruling> rulings = page.getRulings();
+        int[][] quantized = new int[rulings.size()][];
+        for (int i = 0; i < rulings.size(); i++) {
+            Ruling ruling = rulings.get(i);
+            quantized[i] = new int[]{quantize(ruling.getX1()), quantize(ruling.getY1()), quantize(ruling.getX2()), quantize(ruling.getY2())};
+        }
+        Arrays.sort(quantized, Arrays::compare);
+        int[] signature = new int[quantized.length * 4 + 2];
+        for (int i = 0; i < quantized.length; i++) {
+            System.arraycopy(quantized[i], 0, signature, i * 4, 4);
+        }
+        signature[signature.length - 2] = quantize(page.getWidth());
+        signature[signature.length - 1] = quantize(page.getHeight());
+        return signature;
+    }
+
+    // The tables of the layout, null on a miss or if another layout has the same key
+    List<StructuredPage.TableGrid> get(int[] signature) {
+        Template template;
+        synchronized (templates) {
+            template = templates.get(toKey(signature));
+        }
+        boolean hit = template != null && Arrays.equals(template.signature, signature);
+        (hit ? hits : misses).incrementAndGet();
+        return hit ? template.tables : null;
+    }
+
+    // Keeps the geometry of the detected tables, their text belongs to the page
+    void put(int[] signature, List<StructuredPage.TableGrid> tables) {
+        List<StructuredPage.TableGrid> layout = new ArrayList<>(tables.size());
+        for (StructuredPage.TableGrid table : tables) {
+            StructuredPage.TableGrid grid = new StructuredPage.TableGrid(table.getX(), table.getY(), table.getWidth(), table.getHeight());
+            for (List<StructuredPage.TableCell> row : table.getRows()) {
+                List<StructuredPage.TableCell> cells = new ArrayList<>(row.size());
+                for (StructuredPage.TableCell cell : row) {
+                    cells.add(new StructuredPage.TableCell(cell.getX(), cell.getY(), cell.getWidth(), cell.getHeight(), ""));
+                }
+                grid.getRows().add(cells);
+            }
+            layout.add(grid);
+        }
+        synchronized (templates) {
+            templates.put(toKey(signature), new Template(signature, List.copyOf(layout)));
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (templates) {
+            return templates.size();
+        }
+    }
+
+    private static int quantize(double value) {
+        return Math.round((float) value / QUANTUM);
+    }
+
+    private static String toKey(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Integer.BYTES);
+        buffer.asIntBuffer().put(signature);
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MessageDigest.getInstance("SHA-256").digest(buffer.array()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static class Template {
+        private final int[] signature;
+        private final List<StructuredPage.TableGrid> tables;
+
+        private Template(int[] signature, List<StructuredPage.TableGrid> tables) {
+            this.signature = signature;
+            this.tables = tables;
+        }
+    }
+}
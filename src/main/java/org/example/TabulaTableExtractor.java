@@ -0,0 +1,46 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import technology.tabula.Page;
+import technology.tabula.RectangularTextContainer;
+import technology.tabula.Table;
+import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Tabula lattice mode: cells are found from the ruling lines of the page
+public class TabulaTableExtractor implements TableExtractor {
+
+    private final SpreadsheetExtractionAlgorithm algorithm;
+
+    public TabulaTableExtractor(int minSpacingBetweenRulings) {
+        this.algorithm = new SpreadsheetExtractionAlgorithm().withMinSpacingBetweenRulings(minSpacingBetweenRulings);
+    }
+
+    @Override
+    public String getName() {
+        return "tabula";
+    }
+
+    @Override
+    public List<StructuredPage.TableGrid> extract(PDDocument document, Page page) {
+        List<StructuredPage.TableGrid> grids = new ArrayList<>();
+        for (Table table : algorithm.extract(page)) {
+            grids.add(toGrid(table));
+        }
+        return grids;
+    }
+
+    static StructuredPage.TableGrid toGrid(Table table) {
+        StructuredPage.TableGrid grid = new StructuredPage.TableGrid((float) table.getX(), (float) table.getY(), (float) table.getWidth(), (float) table.getHeight());
+        for (List<RectangularTextContainer> row : table.getRows()) {
+            List<StructuredPage.TableCell> cells = new ArrayList<>(row.size());
+            for (RectangularTextContainer cell : row) {
+                cells.add(new StructuredPage.TableCell((float) cell.getX(), (float) cell.getY(), (float) cell.getWidth(), (float) cell.getHeight(), cell.getText()));
+            }
+            grid.getRows().add(cells);
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Markdown keeps the extractor output as is, plain text separates pages with form feeds
+public class TextPageSink implements PageSink {
+
+    private final Writer writer;
+    private final boolean markdown;
+
+    public TextPageSink(Writer writer, boolean markdown) {
+        this.writer = writer;
+        this.markdown = markdown;
+    }
+
+    @Override
+    public void writePage(FilePage page) throws IOException {
+        writer.write(page.getText());
+        if (!markdown) {
+            writer.write('\f');
+        }
+    }
+
+    @Override
+    public void writeChunk(PdfWriter.FileChunk chunk) throws IOException {
+        writer.write(chunk.getText());
+        writer.write("\n\n");
+    }
+
+    @Override
+    public void endDocument() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
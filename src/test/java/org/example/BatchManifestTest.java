@@ -0,0 +1,198 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchManifestTest {
+
+    private static final long MODIFIED = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenedManifestSkipsFinishedDocuments() throws IOException {
+        File done = input("done.pdf", "%PDF done");
+        File started = input("started.pdf", "%PDF started");
+        File failed = input("failed.pdf", "%PDF failed");
+        File unknown = input("unknown.pdf", "%PDF unknown");
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            manifest.started(done);
+            manifest.done(done);
+            manifest.started(started);
+            manifest.started(failed);
+            manifest.failed(failed, "Broken xref");
+        }
+
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            assertTrue(manifest.isFinished(done, false));
+            assertTrue(manifest.isFinished(done, true));
+            assertFalse(manifest.isFinished(started, false));
+            assertFalse(manifest.isFinished(unknown, false));
+            assertEquals(1, manifest.count(BatchManifest.Status.DONE));
+            assertEquals(1, manifest.count(BatchManifest.Status.STARTED));
+            assertEquals(1, manifest.count(BatchManifest.Status.FAILED));
+        }
+    }
+
+    @Test
+    void failedDocumentsAreRetriedOnlyOnRequest() throws IOException {
+        File failed = input("failed.pdf", "%PDF failed");
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            manifest.started(failed);
+            manifest.failed(failed, "Broken xref");
+            assertTrue(manifest.isFinished(failed, false));
+            assertFalse(manifest.isFinished(failed, true));
+        }
+
+        // A retry that succeeds replaces the failure
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            assertTrue(manifest.isFinished(failed, false));
+            assertFalse(manifest.isFinished(failed, true));
+            manifest.started(failed);
+            manifest.done(failed);
+        }
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            assertTrue(manifest.isFinished(failed, true));
+            assertEquals(0, manifest.count(BatchManifest.Status.FAILED));
+        }
+    }
+
+    @Test
+    void changedInputIsNotFinished() throws IOException {
+        File resized = input("resized.pdf", "%PDF resized");
+        File touched = input("touched.pdf", "%PDF touched");
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            manifest.done(resized);
+            manifest.done(touched);
+        }
+
+        // Same modification time, other size
+        Files.write(resized.toPath(), "%PDF resized, now longer".getBytes(StandardCharsets.UTF_8));
+        assertTrue(resized.setLastModified(MODIFIED));
+        // Same size, other modification time
+        assertTrue(touched.setLastModified(MODIFIED + 2000));
+
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            assertFalse(manifest.isFinished(resized, false));
+            assertFalse(manifest.isFinished(touched, false));
+        }
+    }
+
+    @Test
+    void tornLastLineIsIgnored() throws IOException {
+        File done = input("done.pdf", "%PDF done");
+        File torn = input("torn.pdf", "%PDF torn");
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            manifest.done(done);
+        }
+        // The run crashed while appending the record of the second document
+        Files.write(getManifestPath(), ("DONE\t" + torn.getAbsolutePath() + "\t9").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            assertTrue(manifest.isFinished(done, false));
+            assertFalse(manifest.isFinished(torn, false));
+            assertEquals(1, manifest.count(BatchManifest.Status.DONE));
+            // Records appended after the torn line are not glued to it
+            manifest.done(torn);
+        }
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            assertTrue(manifest.isFinished(torn, false));
+            assertEquals(2, manifest.count(BatchManifest.Status.DONE));
+        }
+    }
+
+    @Test
+    void unreadableLinesAreIgnored() throws IOException {
+        File done = input("done.pdf", "%PDF done");
+        long size = done.length();
+        Files.write(getManifestPath(), List.of(
+                "",
+                "FINISHED\t" + done.getAbsolutePath() + "\t" + size + "\t" + MODIFIED,
+                "DONE\t" + done.getAbsolutePath() + "\tten\t" + MODIFIED), StandardCharsets.UTF_8);
+
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            assertFalse(manifest.isFinished(done, false));
+            assertEquals(0, manifest.count(BatchManifest.Status.DONE));
+        }
+        assertEquals(List.of(), readJournal());
+    }
+
+    @Test
+    void openingCompactsToTheLastStateOfEveryDocument() throws IOException {
+        File first = input("first.pdf", "%PDF first");
+        File second = input("second.pdf", "%PDF second");
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            manifest.started(first);
+            manifest.started(second);
+            manifest.failed(second, "Timeout");
+            manifest.done(first);
+            manifest.started(second);
+        }
+        assertEquals(5, readJournal().size());
+
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            assertEquals(1, manifest.count(BatchManifest.Status.DONE));
+            assertEquals(1, manifest.count(BatchManifest.Status.STARTED));
+        }
+        assertEquals(List.of(
+                "DONE\t" + first.getAbsolutePath() + "\t" + first.length() + "\t" + MODIFIED,
+                "STARTED\t" + second.getAbsolutePath() + "\t" + second.length() + "\t" + MODIFIED), readJournal());
+        assertFalse(Files.exists(directory.resolve("manifest.tsv.tmp")));
+    }
+
+    @Test
+    void messagesCanNotBreakTheRecord() throws IOException {
+        File failed = input("failed.pdf", "%PDF failed");
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            manifest.failed(failed, "Line 1\tcolumn 2\r\nLine 2");
+        }
+        assertEquals(List.of("FAILED\t" + failed.getAbsolutePath() + "\t" + failed.length() + "\t" + MODIFIED
+                + "\tLine 1 column 2  Line 2"), readJournal());
+
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            assertTrue(manifest.isFinished(failed, false));
+        }
+    }
+
+    @Test
+    void moveAtomicallyReplacesTheTarget() throws IOException {
+        Path target = directory.resolve("output.txt");
+        Path temporary = directory.resolve("output.txt.part");
+        Files.write(target, "previous".getBytes(StandardCharsets.UTF_8));
+        Files.write(temporary, "complete".getBytes(StandardCharsets.UTF_8));
+
+        BatchManifest.moveAtomically(temporary, target);
+
+        assertFalse(Files.exists(temporary));
+        assertEquals("complete", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    }
+
+    private Path getManifestPath() {
+        return directory.resolve("manifest.tsv");
+    }
+
+    private List<String> readJournal() throws IOException {
+        return Files.readAllLines(getManifestPath(), StandardCharsets.UTF_8);
+    }
+
+    private File input(String name, String content) throws IOException {
+        File file = directory.resolve(name).toFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setLastModified(MODIFIED));
+        return file;
+    }
+}
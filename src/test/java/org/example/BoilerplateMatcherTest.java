@@ -0,0 +1,90 @@
+package org.example;
+
+import org.apache.lucene.search.spell.LevenshteinDistance;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// BoilerplateMatcher must answer like the Lucene check it replaced:
+// LevenshteinDistance.getDistance(phrase, line.trim()) >= threshold for any phrase
+class BoilerplateMatcherTest {
+
+    private static final LevenshteinDistance LEVENSHTEIN = new LevenshteinDistance();
+
+    @ParameterizedTest(name = "[{index}] ''{0}'' ~ ''{1}'' at {2}")
+    @CsvSource(delimiter = '|', value = {
+            // phrase                            | line                                  | threshold | expected
+            "(No file attached)                  | (No file attached)                    | 0.8       | true",
+            "(No file attached)                  | '   (No file attached)  '             | 0.8       | true",
+            // 18 characters: 3 edits are 0.83, 4 edits are 0.78
+            "(No file attached)                  | (No fle atached                       | 0.8       | true",
+            "(No file attached)                  | No fle atached                        | 0.8       | false",
+            // 10 characters: 2 edits are exactly 0.8
+            "abcdefghij                          | abXdefgYij                            | 0.8       | true",
+            "abcdefghij                          | abXdeZgYij                            | 0.8       | false",
+            "abcdefghij                          | abcdefghij                            | 1.0       | true",
+            "abcdefghij                          | abcdefghiX                            | 1.0       | false",
+            // Different lengths: only the length difference is edited
+            "Please upload supporting document   | Please upload supporting documents.   | 0.8       | true",
+            "Please upload supporting document   | Please upload document                | 0.8       | false",
+            "Please upload supporting document   | Please upload supporting doc          | 0.8       | true",
+            "Please upload supporting document   | upload supporting document            | 0.8       | false",
+            "abcdefghij                          | abcdefghijklm                         | 0.8       | false",
+            "abcdefghij                          | abcdefghijkl                          | 0.8       | true",
+            // Same length, nothing in common
+            "abcdefghij                          | klmnopqrst                            | 0.8       | false",
+            "abcdefghij                          | klmnopqrst                            | 0.0       | true",
+            // Empty and blank lines score 0 against a non-empty phrase
+            "(No file attached)                  | ''                                    | 0.8       | false",
+            "(No file attached)                  | '   '                                 | 0.8       | false",
+            "(No file attached)                  | ''                                    | 0.0       | true",
+            // An empty phrase scores 1 against an empty line, 0 against any other
+            "''                                  | ''                                    | 0.8       | true",
+            "''                                  | '  '                                  | 1.0       | true",
+            "''                                  | anything                              | 0.8       | false",
+            "''                                  | anything                              | 0.0       | true",
+            "a                                   | b                                     | 0.8       | false",
+            "a                                   | a                                     | 0.8       | true",
+    })
+    void matchesLikeLevenshteinDistance(String phrase, String line, float threshold, boolean expected) {
+        BoilerplateMatcher matcher = new BoilerplateMatcher(List.of(phrase), threshold);
+        assertEquals(expected, matcher.matches(line));
+        assertEquals(expected, LEVENSHTEIN.getDistance(phrase, line.trim()) >= threshold);
+    }
+
+    @Test
+    void matchesAnyOfSeveralPhrases() {
+        BoilerplateMatcher matcher = new BoilerplateMatcher(BoilerplateMatcher.DEFAULT_PHRASES, 0.8f);
+        assertEquals(true, matcher.matches("(No file atached)"));
+        assertEquals(true, matcher.matches("Please upload supporting documents"));
+        assertEquals(false, matcher.matches("Project Title"));
+    }
+
+    // Random lines over a small alphabet, so that many of them are near the threshold
+    @Test
+    void agreesWithLevenshteinDistanceOnRandomLines() {
+        Random random = new Random(42);
+        for (float threshold : new float[]{0f, 0.5f, 0.7f, 0.8f, 0.9f, 1f}) {
+            for (int i = 0; i < 2000; i++) {
+                List<String> phrases = List.of(randomString(random, random.nextInt(20)), randomString(random, 1 + random.nextInt(20)));
+                String line = randomString(random, random.nextInt(24));
+                BoilerplateMatcher matcher = new BoilerplateMatcher(phrases, threshold);
+                boolean expected = phrases.stream().anyMatch(phrase -> LEVENSHTEIN.getDistance(phrase, line.trim()) >= threshold);
+                assertEquals(expected, matcher.matches(line), () -> phrases + " ~ '" + line + "' at " + threshold);
+            }
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append("abc d".charAt(random.nextInt(5)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,281 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Several workers are simulated by several claims on one queue, lease expiry by moving lease times back
+class FileWorkQueueTest {
+
+    private static final long LEASE_TIMEOUT_MILLIS = 60_000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void claimHandsOutEveryTaskOnceInIdOrder() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        assertTrue(queue.add(task("b-0000001", "/in/b.pdf")));
+        assertTrue(queue.add(task("a-0000001", "/in/a.pdf")));
+        assertTrue(queue.add(task("a-0000201", "/in/a.pdf")));
+
+        assertEquals("a-0000001", queue.claim().getId());
+        assertEquals("a-0000201", queue.claim().getId());
+        FileWorkQueue.Task last = queue.claim();
+        assertEquals("b-0000001", last.getId());
+        assertEquals("/in/b.pdf", last.getPath());
+        assertEquals(11, last.getFirstPage());
+        assertEquals(20, last.getLastPage());
+        assertNull(queue.claim());
+
+        assertEquals(0, queue.count(FileWorkQueue.PENDING));
+        assertEquals(3, queue.count(FileWorkQueue.LEASED));
+    }
+
+    @Test
+    void leasesHaveTheirOwnOwners() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        queue.add(task("a-0000001", "/in/a.pdf"));
+        queue.add(task("a-0000201", "/in/a.pdf"));
+
+        FileWorkQueue.Task first = queue.claim();
+        FileWorkQueue.Task second = queue.claim();
+        assertNotNull(first.getOwner());
+        assertNotEquals(first.getOwner(), second.getOwner());
+        assertTrue(queue.renew(first));
+        assertTrue(queue.renew(second));
+    }
+
+    @Test
+    void taskIsAddedOnceInAnyState() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        assertTrue(queue.add(task("a-0000001", "/in/a.pdf")));
+        assertFalse(queue.add(task("a-0000001", "/in/a.pdf")));
+
+        FileWorkQueue.Task task = queue.claim();
+        assertFalse(queue.add(task("a-0000001", "/in/a.pdf")));
+        queue.complete(task, result(queue, "page"));
+        assertFalse(queue.add(task("a-0000001", "/in/a.pdf")));
+        assertEquals(0, queue.count(FileWorkQueue.PENDING));
+        assertEquals(1, queue.count(FileWorkQueue.DONE));
+    }
+
+    @Test
+    void taskIdOfAnotherDocumentIsRejected() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        queue.add(task("a-0000001", "/in/a.pdf"));
+        assertThrows(IllegalStateException.class, () -> queue.add(task("a-0000001", "/in/other.pdf")));
+        assertEquals("/in/a.pdf", queue.get("a-0000001").getPath());
+        assertNull(queue.get("b-0000001"));
+    }
+
+    // The pending file keeps the time it was added at until it is claimed
+    @Test
+    void claimedTaskOfAnOldPendingFileIsNotExpired() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        queue.add(task("a-0000001", "/in/a.pdf"));
+        setAge(FileWorkQueue.PENDING, "a-0000001", 10 * LEASE_TIMEOUT_MILLIS);
+
+        FileWorkQueue.Task task = queue.claim();
+        assertEquals(0, queue.reclaimExpired(LEASE_TIMEOUT_MILLIS, MAX_ATTEMPTS));
+        assertTrue(queue.renew(task));
+    }
+
+    @Test
+    void renewedLeaseDoesNotExpire() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        queue.add(task("a-0000001", "/in/a.pdf"));
+        FileWorkQueue.Task task = queue.claim();
+        setAge(FileWorkQueue.LEASED, "a-0000001", LEASE_TIMEOUT_MILLIS - 10_000);
+
+        assertTrue(queue.renew(task));
+        setAge(FileWorkQueue.LEASED, "a-0000001", 10_000);
+        assertEquals(0, queue.reclaimExpired(LEASE_TIMEOUT_MILLIS, MAX_ATTEMPTS));
+        assertEquals(1, queue.count(FileWorkQueue.LEASED));
+    }
+
+    @Test
+    void expiredLeaseIsPutBackAndLost() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        queue.add(task("a-0000001", "/in/a.pdf"));
+        FileWorkQueue.Task dead = queue.claim();
+        setAge(FileWorkQueue.LEASED, "a-0000001", 2 * LEASE_TIMEOUT_MILLIS);
+
+        assertEquals(1, queue.reclaimExpired(LEASE_TIMEOUT_MILLIS, MAX_ATTEMPTS));
+        assertEquals(1, queue.count(FileWorkQueue.PENDING));
+        assertFalse(queue.renew(dead));
+
+        FileWorkQueue.Task retry = queue.claim();
+        assertEquals(1, retry.getAttempt());
+        assertNotEquals(dead.getOwner(), retry.getOwner());
+        // The lease is the new worker's now, also for the worker that came back
+        assertFalse(queue.renew(dead));
+        assertTrue(queue.renew(retry));
+    }
+
+    @Test
+    void taskFailsAfterTooManyExpiredLeases() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        queue.add(task("a-0000001", "/in/a.pdf"));
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            assertNotNull(queue.claim());
+            setAge(FileWorkQueue.LEASED, "a-0000001", 2 * LEASE_TIMEOUT_MILLIS);
+            assertEquals(1, queue.reclaimExpired(LEASE_TIMEOUT_MILLIS, MAX_ATTEMPTS));
+        }
+
+        assertNull(queue.claim());
+        List<FileWorkQueue.Task> failed = queue.list(FileWorkQueue.FAILED);
+        assertEquals(1, failed.size());
+        assertEquals(MAX_ATTEMPTS, failed.get(0).getAttempt());
+        assertEquals("Lease expired 3 times", failed.get(0).getError());
+        assertNull(failed.get(0).getOwner());
+    }
+
+    @Test
+    void failByTheOwnerFailsTheTask() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        queue.add(task("a-0000001", "/in/a.pdf"));
+        FileWorkQueue.Task task = queue.claim();
+
+        queue.fail(task, "Broken xref");
+
+        assertEquals(0, queue.count(FileWorkQueue.LEASED));
+        assertEquals("Broken xref", queue.get("a-0000001").getError());
+        assertEquals(1, queue.count(FileWorkQueue.FAILED));
+        assertNoTemporaryFiles();
+    }
+
+    @Test
+    void failByAnExpiredWorkerKeepsTheNewLease() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        queue.add(task("a-0000001", "/in/a.pdf"));
+        FileWorkQueue.Task dead = queue.claim();
+        setAge(FileWorkQueue.LEASED, "a-0000001", 2 * LEASE_TIMEOUT_MILLIS);
+        queue.reclaimExpired(LEASE_TIMEOUT_MILLIS, MAX_ATTEMPTS);
+        FileWorkQueue.Task retry = queue.claim();
+
+        queue.fail(dead, "Out of memory");
+
+        assertEquals(0, queue.count(FileWorkQueue.FAILED));
+        assertEquals(1, queue.count(FileWorkQueue.LEASED));
+        assertTrue(queue.renew(retry));
+        assertNoTemporaryFiles();
+    }
+
+    @Test
+    void failAfterTheLeaseWasPutBackDoesNothing() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        queue.add(task("a-0000001", "/in/a.pdf"));
+        FileWorkQueue.Task dead = queue.claim();
+        setAge(FileWorkQueue.LEASED, "a-0000001", 2 * LEASE_TIMEOUT_MILLIS);
+        queue.reclaimExpired(LEASE_TIMEOUT_MILLIS, MAX_ATTEMPTS);
+
+        queue.fail(dead, "Out of memory");
+
+        assertEquals(0, queue.count(FileWorkQueue.FAILED));
+        assertEquals(1, queue.count(FileWorkQueue.PENDING));
+    }
+
+    @Test
+    void completePublishesTheResult() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        queue.add(task("a-0000001", "/in/a.pdf"));
+        FileWorkQueue.Task task = queue.claim();
+
+        queue.complete(task, result(queue, "page 11"));
+
+        assertEquals(1, queue.count(FileWorkQueue.DONE));
+        assertEquals(0, queue.count(FileWorkQueue.LEASED));
+        assertEquals("page 11", readResult(queue, task));
+        assertNoTemporaryFiles();
+    }
+
+    // Extraction is deterministic: the late result is as good as the one of the new lease
+    @Test
+    void lateCompleteOfAnExpiredWorkerFinishesTheTask() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        queue.add(task("a-0000001", "/in/a.pdf"));
+        FileWorkQueue.Task dead = queue.claim();
+        setAge(FileWorkQueue.LEASED, "a-0000001", 2 * LEASE_TIMEOUT_MILLIS);
+        queue.reclaimExpired(LEASE_TIMEOUT_MILLIS, MAX_ATTEMPTS);
+        FileWorkQueue.Task retry = queue.claim();
+
+        queue.complete(dead, result(queue, "page 11"));
+        assertEquals(1, queue.count(FileWorkQueue.DONE));
+        assertFalse(queue.renew(retry));
+
+        // The new lease completes too, without an error
+        queue.complete(retry, result(queue, "page 11"));
+        assertEquals(1, queue.count(FileWorkQueue.DONE));
+        assertEquals(0, queue.count(FileWorkQueue.LEASED));
+        assertEquals("page 11", readResult(queue, retry));
+    }
+
+    // Put back before the late result came, the task runs again
+    @Test
+    void lateCompleteAfterTheLeaseWasPutBackKeepsTheTaskPending() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        queue.add(task("a-0000001", "/in/a.pdf"));
+        FileWorkQueue.Task dead = queue.claim();
+        setAge(FileWorkQueue.LEASED, "a-0000001", 2 * LEASE_TIMEOUT_MILLIS);
+        queue.reclaimExpired(LEASE_TIMEOUT_MILLIS, MAX_ATTEMPTS);
+
+        queue.complete(dead, result(queue, "page 11"));
+
+        assertEquals(0, queue.count(FileWorkQueue.DONE));
+        assertEquals(1, queue.count(FileWorkQueue.PENDING));
+        assertEquals("page 11", readResult(queue, dead));
+    }
+
+    @Test
+    void reopenedQueueIsNotClosed() throws IOException {
+        FileWorkQueue queue = new FileWorkQueue(directory);
+        assertFalse(queue.isClosed());
+        queue.close();
+        assertTrue(new FileWorkQueue(directory).isClosed());
+        queue.reopen();
+        assertFalse(queue.isClosed());
+    }
+
+    private static FileWorkQueue.Task task(String id, String path) {
+        return new FileWorkQueue.Task(id, path, path.substring(path.lastIndexOf('/') + 1), 11, 20, 0, null, null);
+    }
+
+    private static Path result(FileWorkQueue queue, String content) throws IOException {
+        Path partialResult = queue.newTemporaryPath();
+        Files.write(partialResult, content.getBytes(StandardCharsets.UTF_8));
+        return partialResult;
+    }
+
+    private static String readResult(FileWorkQueue queue, FileWorkQueue.Task task) throws IOException {
+        return new String(Files.readAllBytes(queue.getResultPath(task)), StandardCharsets.UTF_8);
+    }
+
+    // Moves the lease time of the task file back, as if its worker stopped renewing it
+    private void setAge(String state, String id, long ageMillis) throws IOException {
+        Path file = directory.resolve(state).resolve(id + ".task");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - ageMillis));
+    }
+
+    private void assertNoTemporaryFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve("tmp"))) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonlPageSinkTest {
+
+    // Empty documents, pages past the end and stages without text write no record
+    @Test
+    void sinkWithoutRecordsCloses() throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonlPageSink sink = new JsonlPageSink(out)) {
+            sink.beginDocument("empty.pdf");
+            sink.endDocument();
+        }
+        assertEquals("", out.toString());
+    }
+
+    @Test
+    void writesOneRecordPerLine() throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonlPageSink sink = new JsonlPageSink(out)) {
+            sink.beginDocument("a.pdf");
+            sink.writePage(new FilePage("Intro", 1));
+            sink.writePage(new FilePage("1.1 Question", 2, List.of(new QuestionBoundary(2, 0, "1.1"))));
+            sink.endDocument();
+        }
+        assertEquals("{\"documentId\":\"a.pdf\",\"type\":\"page\",\"pageNumber\":1,\"text\":\"Intro\"}\n"
+                + "{\"documentId\":\"a.pdf\",\"type\":\"page\",\"pageNumber\":2,\"text\":\"1.1 Question\","
+                + "\"questions\":[{\"offset\":0,\"number\":\"1.1\"}]}\n", out.toString());
+    }
+}
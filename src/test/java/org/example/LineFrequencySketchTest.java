@@ -0,0 +1,70 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineFrequencySketchTest {
+
+    // Capacity 2: "Header" is evicted from the first slice, the second slice has only "Header"
+    @Test
+    void lineEvictedInOneSliceIsNotUndercounted() {
+        LineFrequencySketch first = sketch(2, "Header", "a", "a", "a", "b", "b", "b");
+        LineFrequencySketch second = sketch(2, "Header", "Header", "Header");
+
+        LineFrequencySketch merged = first.merge(second);
+
+        assertEquals(4, merged.estimateCount("Header"));
+        assertTrue(merged.getCandidates().stream().anyMatch(candidate -> candidate.getLine().equals("Header")));
+    }
+
+    @Test
+    void mergedCountsOfTablesWithRoomAreExact() {
+        LineFrequencySketch merged = sketch(10, "a", "b", "a").merge(sketch(10, "a", "c"));
+        assertEquals(3, merged.estimateCount("a"));
+        assertEquals(1, merged.estimateCount("b"));
+        assertEquals(1, merged.estimateCount("c"));
+    }
+
+    // Estimates of the kept candidates never fall below the true counts, however the pages are sliced
+    @Test
+    void mergedEstimatesAreUpperBounds() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            Map<String, Integer> trueCounts = new HashMap<>();
+            List<LineFrequencySketch> slices = new ArrayList<>();
+            for (int slice = 0, sliceCount = 1 + random.nextInt(6); slice < sliceCount; slice++) {
+                LineFrequencySketch sketch = new LineFrequencySketch(4, 64, 4);
+                for (int i = 0, lines = random.nextInt(60); i < lines; i++) {
+                    // A few frequent lines among many rare ones
+                    String line = random.nextInt(3) == 0 ? "frequent" + random.nextInt(3) : "rare" + random.nextInt(40);
+                    sketch.add(line, "region");
+                    trueCounts.merge(line, 1, Integer::sum);
+                }
+                slices.add(sketch);
+            }
+            LineFrequencySketch merged = slices.get(0);
+            for (LineFrequencySketch slice : slices.subList(1, slices.size())) {
+                merged = merged.merge(slice);
+            }
+            for (LineFrequencySketch.Candidate candidate : merged.getCandidates()) {
+                assertTrue(candidate.getCount() >= trueCounts.get(candidate.getLine()), candidate.getLine());
+            }
+        }
+    }
+
+    private static LineFrequencySketch sketch(int capacity, String... lines) {
+        LineFrequencySketch sketch = new LineFrequencySketch(capacity);
+        for (String line : lines) {
+            sketch.add(line, "region");
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,198 @@
+package org.example;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LuceneIndexSinkTest {
+
+    @TempDir
+    Path directory;
+
+    // A document that is still open does not hold back the commit of the others
+    @Test
+    void commitsWhileOtherDocumentsAreOpen() throws IOException {
+        try (LuceneIndexSink index = new LuceneIndexSink(getIndexPath(), 1)) {
+            PageSink open = index.newDocumentSink();
+            open.beginDocument("open.pdf");
+            open.writePage(new FilePage("Open page", 1));
+
+            PageSink ended = index.newDocumentSink();
+            ended.beginDocument("ended.pdf");
+            ended.writePage(new FilePage("Ended page 1", 1));
+            ended.writePage(new FilePage("Ended page 2", 2));
+            ended.endDocument();
+            ended.close();
+
+            assertEquals(2, countCommitted("ended.pdf"));
+            assertEquals(0, countCommitted("open.pdf"));
+            open.close();
+        }
+        assertEquals(2, countCommitted("ended.pdf"));
+        assertEquals(0, countCommitted("open.pdf"));
+    }
+
+    @Test
+    void failedDocumentIsNotAdded() throws IOException {
+        try (LuceneIndexSink index = new LuceneIndexSink(getIndexPath())) {
+            PageSink failed = index.newDocumentSink();
+            failed.beginDocument("failed.pdf");
+            failed.writePage(new FilePage("Page 1", 1));
+            failed.close();
+
+            // A sink whose document was not ended starts the next one from scratch
+            PageSink reused = index.newDocumentSink();
+            reused.beginDocument("first.pdf");
+            reused.writePage(new FilePage("Page 1", 1));
+            reused.beginDocument("second.pdf");
+            reused.writePage(new FilePage("Page 1", 1));
+            reused.endDocument();
+            reused.close();
+        }
+        assertEquals(0, countCommitted("failed.pdf"));
+        assertEquals(0, countCommitted("first.pdf"));
+        assertEquals(1, countCommitted("second.pdf"));
+    }
+
+    @Test
+    void extractedAgainReplacesEarlierPages() throws IOException {
+        try (LuceneIndexSink index = new LuceneIndexSink(getIndexPath())) {
+            index.beginDocument("document.pdf");
+            index.writePage(new FilePage("Page 1", 1));
+            index.writePage(new FilePage("Page 2", 2));
+            index.endDocument();
+        }
+        try (LuceneIndexSink index = new LuceneIndexSink(getIndexPath())) {
+            index.beginDocument("document.pdf");
+            index.writePage(new FilePage("Page 1", 1));
+            index.endDocument();
+        }
+        assertEquals(1, countCommitted("document.pdf"));
+    }
+
+    // The manifest records the document as done only with the index commit that contains it
+    @Test
+    void manifestRecordsDoneWithTheCommit() throws IOException {
+        File input = input("document.pdf");
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath());
+             LuceneIndexSink index = new LuceneIndexSink(getIndexPath())) {
+            indexDocument(manifest, index, input);
+
+            assertEquals(List.of(BatchManifest.Status.STARTED.name()), readJournalStatuses());
+            assertEquals(0, countCommitted("document.pdf"));
+        }
+
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath())) {
+            assertTrue(manifest.isFinished(input, false));
+        }
+        assertEquals(1, countCommitted("document.pdf"));
+    }
+
+    // The process dies before the index is committed: a copy of the manifest and the index taken then is what a
+    // resumed run finds, and it extracts the document again
+    @Test
+    void documentIsNotDoneWithoutTheCommit() throws IOException {
+        File input = input("document.pdf");
+        Path crashed = directory.resolve("crashed");
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath());
+             LuceneIndexSink index = new LuceneIndexSink(getIndexPath())) {
+            indexDocument(manifest, index, input);
+            copy(directory, crashed, getManifestPath().getFileName().toString());
+            copy(getIndexPath(), crashed.resolve("index"), null);
+        }
+
+        try (BatchManifest manifest = BatchManifest.open(crashed.resolve(getManifestPath().getFileName()))) {
+            assertFalse(manifest.isFinished(input, false));
+            assertEquals(1, manifest.count(BatchManifest.Status.STARTED));
+        }
+        assertEquals(0, countCommitted(crashed.resolve("index"), "document.pdf"));
+    }
+
+    // Committed when it ends, so it is done at once
+    @Test
+    void documentCommittedByItsOwnBlockIsDoneAtOnce() throws IOException {
+        File input = input("document.pdf");
+        try (BatchManifest manifest = BatchManifest.open(getManifestPath());
+             LuceneIndexSink index = new LuceneIndexSink(getIndexPath(), 1)) {
+            indexDocument(manifest, index, input);
+
+            assertEquals(List.of(BatchManifest.Status.STARTED.name(), BatchManifest.Status.DONE.name()), readJournalStatuses());
+            assertEquals(1, countCommitted("document.pdf"));
+        }
+    }
+
+    private static void indexDocument(BatchManifest manifest, LuceneIndexSink index, File input) throws IOException {
+        LuceneIndexSink.DocumentSink sink = index.newDocumentSink();
+        manifest.started(input);
+        sink.beginDocument(input.getName());
+        sink.writePage(new FilePage("Page 1", 1));
+        sink.endDocument();
+        sink.whenCommitted(() -> manifest.done(input));
+        sink.close();
+    }
+
+    private File input(String name) throws IOException {
+        Path input = directory.resolve(name);
+        Files.write(input, "%PDF".getBytes(StandardCharsets.UTF_8));
+        return input.toFile();
+    }
+
+    private Path getIndexPath() {
+        return directory.resolve("index");
+    }
+
+    private Path getManifestPath() {
+        return directory.resolve("manifest");
+    }
+
+    private List<String> readJournalStatuses() throws IOException {
+        List<String> statuses = new ArrayList<>();
+        for (String line : Files.readAllLines(getManifestPath(), StandardCharsets.UTF_8)) {
+            statuses.add(line.substring(0, line.indexOf('\t')));
+        }
+        return statuses;
+    }
+
+    // Files of the source directory, or only the named one
+    private static void copy(Path source, Path target, String name) throws IOException {
+        Files.createDirectories(target);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(source)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file) && (name == null || file.getFileName().toString().equals(name))) {
+                    Files.copy(file, target.resolve(file.getFileName()));
+                }
+            }
+        }
+    }
+
+    private int countCommitted(String documentId) throws IOException {
+        return countCommitted(getIndexPath(), documentId);
+    }
+
+    private static int countCommitted(Path indexPath, String documentId) throws IOException {
+        try (Directory index = FSDirectory.open(indexPath)) {
+            if (!DirectoryReader.indexExists(index)) return 0;
+            try (DirectoryReader reader = DirectoryReader.open(index)) {
+                return new IndexSearcher(reader).count(new TermQuery(new Term(LuceneIndexSink.DOCUMENT_ID_FIELD, documentId)));
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PdfTextExtractorTest {
+
+    @Test
+    void unselectedCheckBoxIsAnEmptyGridCell() {
+        StringBuilder tableStr = new StringBuilder();
+        List<StructuredPage.TableCell> gridRow = appendRow(tableStr, true, "Yes", "[ ] Not applicable", "[x] Approved");
+
+        assertEquals(List.of("Yes", "", "[x] Approved"), getTexts(gridRow));
+        assertEquals(110f, gridRow.get(1).getX());
+        assertEquals(100f, gridRow.get(1).getWidth());
+        assertEquals("| Yes | [x] Approved ", tableStr.toString());
+    }
+
+    @Test
+    void radioButtonsAreReducedToTheSelectedAnswer() {
+        StringBuilder tableStr = new StringBuilder();
+        List<StructuredPage.TableCell> gridRow = appendRow(tableStr, false, "( ) Low (o) High", "( ) Low ( ) High", "Score");
+
+        assertEquals(List.of("(o) High", "", "Score"), getTexts(gridRow));
+        assertEquals("(o) High  Score ", tableStr.toString());
+    }
+
+    // Within form keys the cell text is kept as it is
+    @Test
+    void answersAreKeptWithoutReduction() {
+        StringBuilder tableStr = new StringBuilder();
+        List<StructuredPage.TableCell> gridRow = appendRow(tableStr, true, false, "[ ] Not applicable", "( ) Low (o) High");
+
+        assertEquals(List.of("[ ] Not applicable", "( ) Low (o) High"), getTexts(gridRow));
+        assertEquals("| [ ] Not applicable | ( ) Low (o) High ", tableStr.toString());
+    }
+
+    // Every row of the grid keeps one cell per column
+    @Test
+    void gridRowsKeepTheirColumns() {
+        StructuredPage.TableGrid table = new StructuredPage.TableGrid(10, 100, 300, 40);
+        table.getRows().add(appendRow(new StringBuilder(), true, "Item", "Done", "Skipped"));
+        table.getRows().add(appendRow(new StringBuilder(), true, "Report", "[x] Done", "[ ] Skipped"));
+        table.getRows().add(appendRow(new StringBuilder(), true, "Audit", "[ ] Done", "[ ] Skipped"));
+
+        assertEquals(3, table.getColumnCount());
+        for (List<StructuredPage.TableCell> row : table.getRows()) {
+            assertEquals(3, row.size());
+        }
+    }
+
+    private static List<StructuredPage.TableCell> appendRow(StringBuilder tableStr, boolean useSeparator, String... texts) {
+        return appendRow(tableStr, useSeparator, true, texts);
+    }
+
+    // Cells of 100 points from x = 10
+    private static List<StructuredPage.TableCell> appendRow(StringBuilder tableStr, boolean useSeparator, boolean withAnswers,
+                                                            String... texts) {
+        List<StructuredPage.TableCell> gridRow = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) {
+            StructuredPage.TableCell cell = new StructuredPage.TableCell(10 + i * 100, 100, 100, 20, texts[i]);
+            PdfTextExtractor.appendCell(tableStr, gridRow, cell, texts[i], withAnswers, useSeparator);
+        }
+        return gridRow;
+    }
+
+    private static List<String> getTexts(List<StructuredPage.TableCell> gridRow) {
+        return gridRow.stream().map(StructuredPage.TableCell::getText).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,179 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.example.StructuredResultWriter.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StructuredResultWriterTest {
+
+    @Test
+    void fileStartsWithMagicAndVersion() throws IOException {
+        ByteBuffer file = write();
+        assertEquals(FILE_HEADER_SIZE, file.remaining());
+        assertEquals(MAGIC, file.getInt(0));
+        assertEquals(VERSION, file.getShort(4));
+        assertFalse(new StructuredResultReader(file).hasNext());
+    }
+
+    @Test
+    void pageLengthCoversRecordsAndStringHeap() throws IOException {
+        StructuredPage page = fullPage();
+        ByteBuffer file = write(page);
+
+        int heapSize = 0;
+        for (String text : List.of("First block", "Zweiter Absatz \u00fc", "Yes", "", "No", "Maybe", "z", "x", "Name", "Value", "Sam", "1.4.3", "1.4.3 Question?")) {
+            heapSize += text.getBytes(StandardCharsets.UTF_8).length;
+        }
+        int recordsSize = PAGE_HEADER_SIZE + 2 * BLOCK_SIZE + 3 * TABLE_SIZE + 6 * CELL_SIZE + 2 * FORM_SIZE + QUESTION_SIZE;
+        assertEquals(recordsSize + heapSize, file.getInt(FILE_HEADER_SIZE));
+        assertEquals(FILE_HEADER_SIZE + Integer.BYTES + recordsSize + heapSize, file.remaining());
+    }
+
+    @Test
+    void readsBackEveryRecord() throws IOException {
+        StructuredResultReader reader = new StructuredResultReader(write(fullPage()));
+        assertTrue(reader.hasNext());
+        StructuredResultReader.PageView page = reader.next();
+        assertFalse(reader.hasNext());
+
+        assertEquals(7, page.getPageNumber());
+        assertEquals(612f, page.getWidth());
+        assertEquals(792f, page.getHeight());
+
+        StructuredResultReader.PageView.Section blocks = page.blocks();
+        assertEquals(2, blocks.size());
+        assertEquals(10f, blocks.getX(0));
+        assertEquals(20f, blocks.getY(0));
+        assertEquals(300f, blocks.getWidth(0));
+        assertEquals(12f, blocks.getHeight(0));
+        assertEquals("First block", blocks.getString(0, BLOCK_TEXT));
+        assertEquals("Zweiter Absatz \u00fc", blocks.getString(1, BLOCK_TEXT));
+
+        // Rows of different lengths: the column count is the longest row, first cells index the cells of the page
+        StructuredResultReader.PageView.Section tables = page.tables();
+        assertEquals(3, tables.size());
+        assertEquals(2, tables.getInt(0, TABLE_ROW_COUNT));
+        assertEquals(3, tables.getInt(0, TABLE_COLUMN_COUNT));
+        assertEquals(0, tables.getInt(0, TABLE_FIRST_CELL));
+        assertEquals(0, tables.getInt(1, TABLE_ROW_COUNT));
+        assertEquals(0, tables.getInt(1, TABLE_COLUMN_COUNT));
+        assertEquals(5, tables.getInt(1, TABLE_FIRST_CELL));
+        assertEquals(1, tables.getInt(2, TABLE_ROW_COUNT));
+        assertEquals(5, tables.getInt(2, TABLE_FIRST_CELL));
+        assertEquals(400f, tables.getWidth(2));
+
+        StructuredResultReader.PageView.Section cells = page.cells();
+        assertEquals(6, cells.size());
+        assertEquals("Yes", cells.getString(0, CELL_TEXT));
+        assertEquals("", cells.getString(1, CELL_TEXT));
+        assertEquals(0f, cells.getWidth(1));
+        assertEquals(1, cells.getInt(3, CELL_ROW));
+        assertEquals(0, cells.getInt(3, CELL_COLUMN));
+        assertEquals("Maybe", cells.getString(3, CELL_TEXT));
+        assertEquals("z", cells.getString(4, CELL_TEXT));
+        assertEquals(1, cells.getInt(4, CELL_COLUMN));
+        assertEquals(110f, cells.getX(4));
+        assertEquals("x", cells.getString(5, CELL_TEXT));
+        assertEquals(0, cells.getInt(5, CELL_ROW));
+
+        StructuredResultReader.PageView.Section forms = page.forms();
+        assertEquals(2, forms.size());
+        assertEquals("Name", forms.getString(0, FORM_NAME));
+        assertEquals("Value", forms.getString(0, FORM_VALUE));
+        // Null strings are written empty
+        assertEquals("", forms.getString(1, FORM_NAME));
+        assertEquals("Sam", forms.getString(1, FORM_VALUE));
+
+        StructuredResultReader.PageView.Section questions = page.questions();
+        assertEquals(1, questions.size());
+        assertEquals("1.4.3", questions.getString(0, QUESTION_NUMBER));
+        assertEquals("1.4.3 Question?", questions.getString(0, QUESTION_TEXT));
+        assertEquals(50f, questions.getX(0));
+    }
+
+    @Test
+    void readsEmptyPagesBetweenOthers() throws IOException {
+        StructuredResultReader reader = new StructuredResultReader(write(new StructuredPage(1, 100, 200), fullPage(), new StructuredPage(3, 100, 200)));
+        List<Integer> pageNumbers = new ArrayList<>();
+        while (reader.hasNext()) {
+            StructuredResultReader.PageView page = reader.next();
+            pageNumbers.add(page.getPageNumber());
+            if (page.getPageNumber() != 7) {
+                assertEquals(0, page.blocks().size());
+                assertEquals(0, page.tables().size());
+                assertEquals(0, page.cells().size());
+                assertEquals(0, page.forms().size());
+                assertEquals(0, page.questions().size());
+                assertEquals(100f, page.getWidth());
+            }
+        }
+        assertEquals(List.of(1, 7, 3), pageNumbers);
+    }
+
+    @Test
+    void emptyPageIsOnlyItsHeader() throws IOException {
+        ByteBuffer file = write(new StructuredPage(1, 100, 200));
+        assertEquals(PAGE_HEADER_SIZE, file.getInt(FILE_HEADER_SIZE));
+    }
+
+    @Test
+    void recordIndexIsChecked() throws IOException {
+        StructuredResultReader.PageView page = new StructuredResultReader(write(new StructuredPage(1, 100, 200))).next();
+        assertThrows(IndexOutOfBoundsException.class, () -> page.blocks().getX(0));
+    }
+
+    @Test
+    void rejectsOtherFiles() {
+        assertThrows(IllegalArgumentException.class, () -> new StructuredResultReader(ByteBuffer.wrap("%PDF-1.7".getBytes(StandardCharsets.US_ASCII))));
+        ByteBuffer otherVersion = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putShort((short) (VERSION + 1)).putShort((short) 0);
+        otherVersion.flip();
+        assertThrows(IllegalArgumentException.class, () -> new StructuredResultReader(otherVersion));
+    }
+
+    private static StructuredPage fullPage() {
+        StructuredPage page = new StructuredPage(7, 612, 792);
+        page.getBlocks().add(new StructuredPage.TextBlock(10, 20, 300, 12, "First block"));
+        page.getBlocks().add(new StructuredPage.TextBlock(10, 40, 300, 12, "Zweiter Absatz \u00fc"));
+
+        StructuredPage.TableGrid table = new StructuredPage.TableGrid(10, 100, 300, 40);
+        table.getRows().add(List.of(
+                new StructuredPage.TableCell(10, 100, 100, 20, "Yes"),
+                new StructuredPage.TableCell(0, 0, 0, 0, ""),
+                new StructuredPage.TableCell(210, 100, 100, 20, "No")));
+        table.getRows().add(List.of(
+                new StructuredPage.TableCell(10, 120, 100, 20, "Maybe"),
+                new StructuredPage.TableCell(110, 120, 200, 20, "z")));
+        page.getTables().add(table);
+        page.getTables().add(new StructuredPage.TableGrid(10, 150, 0, 0));
+        StructuredPage.TableGrid single = new StructuredPage.TableGrid(10, 200, 400, 20);
+        single.getRows().add(List.of(new StructuredPage.TableCell(10, 200, 400, 20, "x")));
+        page.getTables().add(single);
+
+        page.getFormValues().add(new StructuredPage.FormValue("Name", 10, 300, 100, 12, "Value"));
+        page.getFormValues().add(new StructuredPage.FormValue(null, 10, 320, 100, 12, "Sam"));
+        page.getQuestions().add(new StructuredPage.Question("1.4.3", 50, 400, 300, 30, "1.4.3 Question?"));
+        return page;
+    }
+
+    private static ByteBuffer write(StructuredPage... pages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (StructuredResultWriter writer = new StructuredResultWriter(Channels.newChannel(out))) {
+            for (StructuredPage page : pages) {
+                writer.write(page);
+            }
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+}
@@ -0,0 +1,26 @@
+package org.example;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Warm-up and the AppCDS training run rely on the document taking the SSEL path
+class SyntheticDocumentTest {
+
+    @Test
+    void createdDocumentIsSsel() throws IOException {
+        try (PDDocument document = SyntheticDocument.create()) {
+            assertTrue(ExtractionEngine.getDefault().newSession(document).isSselDocument());
+        }
+    }
+
+    @Test
+    void savedDocumentIsSsel() throws IOException {
+        try (PDDocument document = SyntheticDocument.load()) {
+            assertTrue(ExtractionEngine.getDefault().newSession(document).isSselDocument());
+        }
+    }
+}